@@ -0,0 +1,235 @@
+import java.util.Random;
+
+/**
+* Cache built on Hashtable that holds at most a maximum number of entries,
+* or at most a maximum total weight. When an insert pushes it over, an
+* EvictionPolicy picks entries to evict until it fits again. Three policies
+* are included: LruPolicy, ClockPolicy and TinyLfuPolicy.
+*
+* The hash table maps each key to a CacheEntry, which also carries the
+* policy's bookkeeping. A hit is one hash table lookup plus an O(1) policy
+* update, neither of which allocates. Hits, misses and evictions are counted.
+*/
+public class BoundedCache<K, V> implements HashtableInterface<K, V> {
+    private final Hashtable<K, CacheEntry<K, V>> table;
+    private final EvictionPolicy<K, V> policy;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maximumWeight;
+    private long weight;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+    * Constructor method for a cache bounded by number of entries.
+    *
+    * @param maximumSize The largest number of entries to keep.
+    * @param policy Picks the entries to evict.
+    */
+    public BoundedCache(long maximumSize, EvictionPolicy<K, V> policy) {
+        this(maximumSize, null, policy);
+    }
+
+    /**
+    * Constructor method for a cache bounded by total weight.
+    *
+    * @param maximumWeight The largest total weight to keep.
+    * @param weigher Computes the weight of each entry, or null to count each
+    * entry as 1.
+    * @param policy Picks the entries to evict.
+    */
+    public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+            EvictionPolicy<K, V> policy) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Illegal maximum: " + maximumWeight);
+        }
+        if (policy == null) {
+            throw new NullPointerException("Eviction policy is null");
+        }
+
+        this.table = new Hashtable<K, CacheEntry<K, V>>(16);
+        this.policy = policy;
+        this.weigher = weigher;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+    * Get the number of entries in the cache.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return table.getSize();
+    }
+
+    /**
+    * Check if the cache is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return table.isEmpty();
+    }
+
+    /**
+    * Get the total weight of the entries in the cache.
+    *
+    * @return the total weight.
+    */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+    * Get the number of lookups that found their key.
+    *
+    * @return the hit count.
+    */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+    * Get the number of lookups that did not find their key.
+    *
+    * @return the miss count.
+    */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+    * Get the number of entries evicted to stay within the maximum.
+    *
+    * @return the eviction count.
+    */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+    * Return the value associated with the specified key, and record the hit
+    * or miss.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not cached.
+    */
+    public V get(K key) {
+        CacheEntry<K, V> entry = table.get(key);
+
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        policy.onAccess(entry);
+        return entry.value;
+    }
+
+    /**
+    * Adds a key, value pair to the cache, replacing the old value if the key
+    * is already cached, then evicts entries until the cache fits.
+    *
+    * @param key The key.
+    * @param value The value.
+    */
+    public void add(K key, V value) {
+        CacheEntry<K, V> entry = table.get(key);
+        int entryWeight = weigher == null ? 1 : weigher.weigh(key, value);
+
+        if (entryWeight < 0) {
+            throw new IllegalArgumentException("Negative weight: " + entryWeight);
+        }
+
+        // Key already cached, replace old value with new value
+        if (entry != null) {
+            weight += entryWeight - entry.weight;
+            entry.value = value;
+            entry.weight = entryWeight;
+            policy.onAccess(entry);
+        }
+
+        // New key
+        else {
+            entry = new CacheEntry<K, V>(key, value, entryWeight);
+            table.add(key, entry);
+            policy.onInsert(entry);
+            weight += entryWeight;
+        }
+
+        evict();
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not cached.
+    */
+    public V remove(K key) {
+        CacheEntry<K, V> entry = table.remove(key);
+
+        if (entry == null) {
+            return null;
+        }
+        policy.onRemove(entry);
+        weight -= entry.weight;
+        return entry.value;
+    }
+
+    /**
+    * Evict the entries chosen by the policy until the cache fits.
+    */
+    private void evict() {
+        CacheEntry<K, V> victim;
+
+        while (weight > maximumWeight && !table.isEmpty()) {
+            victim = policy.victim();
+            table.remove(victim.getKey());
+            policy.onRemove(victim);
+            weight -= victim.weight;
+            evictionCount++;
+        }
+    }
+
+    /**
+    * Comparing the hit rates of the eviction policies on a skewed workload
+    * with occasional scans of keys that are used only once.
+    */
+    public static void main(String[] args) {
+        int size = 1000;
+
+        System.out.println("Caching " + size + " of 100000 keys, mostly popular ones.");
+        run("LRU", new BoundedCache<Integer, Integer>(size, new LruPolicy<Integer, Integer>()));
+        run("CLOCK", new BoundedCache<Integer, Integer>(size, new ClockPolicy<Integer, Integer>()));
+        run("W-TinyLFU", new BoundedCache<Integer, Integer>(size,
+            new TinyLfuPolicy<Integer, Integer>(size)));
+    }
+
+    /**
+    * Helper function for main.
+    */
+    private static void run(String name, BoundedCache<Integer, Integer> cache) {
+        Random random = new Random(42);
+        int key;
+
+        for (int i = 0; i < 1000000; i++) {
+
+            // Every so often, a scan of keys that will not come back
+            if (i % 10000 < 2000) {
+                key = 100000 + i;
+            }
+            else {
+                key = (int) (Math.pow(random.nextDouble(), 4) * 100000);
+            }
+
+            if (cache.get(key) == null) {
+                cache.add(key, key);
+            }
+        }
+
+        System.out.println(name + ": hits " + cache.getHitCount() + ", misses "
+            + cache.getMissCount() + ", evictions " + cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+* Hash strategy for byte array keys. Arrays use identity for hashCode and
+* equals, so two arrays with the same contents would otherwise be different
+* keys. This hashes the contents four bytes at a time with a seeded
+* MurmurHash3-style loop and compares keys by content.
+*/
+public class ByteArrayHashStrategy implements HashStrategy<byte[]> {
+    private static final Random SEEDS = new Random();
+
+    private final int seed;
+
+    /**
+    * Constructor method for a ByteArrayHashStrategy with a random seed.
+    */
+    public ByteArrayHashStrategy() {
+        this(SEEDS.nextInt());
+    }
+
+    /**
+    * Constructor method for a ByteArrayHashStrategy with a fixed seed.
+    *
+    * @param seed The seed mixed into every hash.
+    */
+    public ByteArrayHashStrategy(int seed) {
+        this.seed = seed;
+    }
+
+    /**
+    * Hash the contents of the array.
+    *
+    * @param key The array to hash.
+    * @return the mixed hash.
+    */
+    public int hash(byte[] key) {
+        int h = seed;
+        int i = 0;
+        int k;
+
+        // Four bytes at a time
+        for (; i + 4 <= key.length; i += 4) {
+            k = (key[i] & 0xff) | (key[i + 1] & 0xff) << 8
+                | (key[i + 2] & 0xff) << 16 | key[i + 3] << 24;
+            h = mixInto(h, k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+
+        // Remaining one to three bytes
+        k = 0;
+        for (int shift = 0; i < key.length; i++, shift += 8) {
+            k |= (key[i] & 0xff) << shift;
+        }
+        h = mixInto(h, k);
+
+        return SeededHashStrategy.mix(h ^ key.length);
+    }
+
+    /**
+    * Compare the contents of two arrays.
+    */
+    public boolean equals(byte[] a, byte[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    /**
+    * Scramble a block of input and fold it into the running hash.
+    */
+    private static int mixInto(int h, int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        k *= 0x1b873593;
+        return h ^ k;
+    }
+}
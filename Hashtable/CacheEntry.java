@@ -0,0 +1,49 @@
+/**
+* An entry of a BoundedCache. Besides the key, value and weight, it carries
+* the links and flags that eviction policies use to track it, so that
+* recording a hit never allocates.
+*/
+public class CacheEntry<K, V> {
+    private final K key;
+    V value;
+    int weight;
+
+    // Used by the eviction policies
+    CacheEntry<K, V> prev;
+    CacheEntry<K, V> next;
+    boolean referenced;
+    int queue;
+
+    CacheEntry(K key, V value, int weight) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+    }
+
+    /**
+    * Get the key of the entry.
+    *
+    * @return the key
+    */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+    * Get the value of the entry.
+    *
+    * @return the value
+    */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+    * Get the weight of the entry.
+    *
+    * @return the weight
+    */
+    public int getWeight() {
+        return weight;
+    }
+}
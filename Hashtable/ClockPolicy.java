@@ -0,0 +1,59 @@
+/**
+* CLOCK eviction, an approximation of LRU that makes hits cheaper. Entries
+* sit in a circle with a hand pointing at the next candidate. A hit only sets
+* the entry's referenced bit instead of moving it. To find a victim, the hand
+* sweeps around the circle, clearing referenced bits, and stops at the first
+* entry whose bit was already clear.
+*/
+public class ClockPolicy<K, V> implements EvictionPolicy<K, V> {
+    private CacheEntry<K, V> hand;
+
+    public void onInsert(CacheEntry<K, V> entry) {
+        entry.referenced = false;
+
+        // First entry forms a circle of one
+        if (hand == null) {
+            entry.next = entry;
+            entry.prev = entry;
+            hand = entry;
+            return;
+        }
+
+        // Insert just behind the hand, so it is checked last
+        entry.next = hand;
+        entry.prev = hand.prev;
+        hand.prev.next = entry;
+        hand.prev = entry;
+    }
+
+    public void onAccess(CacheEntry<K, V> entry) {
+        entry.referenced = true;
+    }
+
+    public void onRemove(CacheEntry<K, V> entry) {
+
+        // Last entry in the circle
+        if (entry.next == entry) {
+            hand = null;
+        }
+        else {
+            if (hand == entry) {
+                hand = entry.next;
+            }
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    public CacheEntry<K, V> victim() {
+
+        // Give referenced entries a second chance
+        while (hand.referenced) {
+            hand.referenced = false;
+            hand = hand.next;
+        }
+        return hand;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+* Turns keys or values into bytes and back, so that they can be written to a
+* snapshot file and read back from it.
+*/
+public interface Codec<T> {
+
+	/**
+	* Convert a value to bytes.
+	*/
+	byte[] encode(T value);
+
+	/**
+	* Convert bytes produced by encode back to a value.
+	*/
+	T decode(byte[] bytes);
+}
@@ -0,0 +1,537 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+* Thread-safe hash table using lock striping. The table is split into
+* segments, each one a small separately chained hash table with its own lock.
+* A key's segment is picked from the high bits of its hash and its bucket
+* from the low bits, so writers to different segments never wait on each
+* other.
+*
+* Reads take no lock at all. Nodes are immutable apart from their volatile
+* value, and a chain is only ever changed by publishing a new head, so a
+* reader always walks a consistent chain. Removing a node copies the nodes in
+* front of it instead of unlinking it in place. Resizing is done per segment
+* under that segment's lock: the new bucket array is filled (cloning nodes
+* where needed, never changing the old ones) and then published, so readers
+* still walking the old array see a complete table.
+*
+* Null keys and null values are not supported, since get returns null for a
+* missing key.
+*/
+public class ConcurrentHashtable<K, V> implements HashtableInterface<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR = 0.75;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final HashStrategy<? super K> strategy;
+
+    /**
+    * Constructor method for a ConcurrentHashtable with the default number of
+    * lock stripes.
+    *
+    * @param capacity The initial capacity of the whole table.
+    */
+    public ConcurrentHashtable(int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+    * Constructor method for a ConcurrentHashtable.
+    *
+    * @param capacity The initial capacity of the whole table.
+    * @param concurrencyLevel The expected number of concurrent writers, which
+    * is rounded up to a power of two to get the number of segments.
+    */
+    public ConcurrentHashtable(int capacity, int concurrencyLevel) {
+        this(capacity, concurrencyLevel, new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for a ConcurrentHashtable that hashes and compares
+    * its keys with the given strategy.
+    *
+    * @param capacity The initial capacity of the whole table.
+    * @param concurrencyLevel The expected number of concurrent writers.
+    * @param strategy The hash strategy for the keys.
+    */
+    public ConcurrentHashtable(int capacity, int concurrencyLevel,
+            HashStrategy<? super K> strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Illegal concurrency level: "
+                + concurrencyLevel);
+        }
+
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
+        this.strategy = strategy;
+        int count = tableSizeFor(Math.min(concurrencyLevel, MAXIMUM_SEGMENTS));
+        int perSegment = tableSizeFor((capacity + count - 1) / count);
+
+        segments = newSegmentArray(count);
+        segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        segmentMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<K, V>(perSegment, strategy);
+        }
+    }
+
+    /**
+    * Create an array of segments. Java cannot create generic arrays
+    * directly, so this goes through a raw array once.
+    */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Segment<K, V>[] newSegmentArray(int count) {
+        return (Segment<K, V>[]) new Segment[count];
+    }
+
+    /**
+    * Round the requested capacity up to a power of two.
+    *
+    * @param capacity The requested capacity.
+    * @return the smallest power of two that is at least the capacity.
+    */
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(1, Integer.highestOneBit(Math.max(1, capacity) - 1) << 1);
+    }
+
+    /**
+    * Hash the key with the strategy. Both the high bits (for the segment) and
+    * the low bits (for the bucket) of the result are used.
+    *
+    * @param key The key to hash.
+    * @return the hash.
+    */
+    private int hash(K key) {
+        return strategy.hash(key);
+    }
+
+    /**
+    * Find the segment responsible for the given hash.
+    *
+    * @param hash The spread hash of a key.
+    * @return the segment holding that key.
+    */
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+    * Get the size of the hash table. Other threads may be changing the table
+    * while the segments are counted, so this is only a snapshot.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        long sum = 0;
+        for (Segment<K, V> segment : segments) {
+            sum += segment.count;
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Return the value associated with the specified key without locking.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    public V get(K key) {
+        int h = hash(key);
+        return segmentFor(h).get(key, h);
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. Only the key's segment is locked.
+    *
+    * @param key The key, must not be null.
+    * @param value The value, must not be null.
+    */
+    public void add(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int h = hash(key);
+        segmentFor(h).add(key, h, value);
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. Only the key's
+    * segment is locked.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    public V remove(K key) {
+        int h = hash(key);
+        return segmentFor(h).remove(key, h);
+    }
+
+    /**
+    * {@inheritDoc} Atomic; a key that is already present is found without
+    * locking. Null values are not supported.
+    */
+    public V putIfAbsent(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int h = hash(key);
+        Segment<K, V> segment = segmentFor(h);
+        V old = segment.get(key, h);
+        return old != null ? old : segment.putIfAbsent(key, h, value);
+    }
+
+    /**
+    * {@inheritDoc} Atomic; a key that is already present is found without
+    * locking. Otherwise the function runs while the key's segment is locked,
+    * so it should be short and must not use the table.
+    */
+    public V computeIfAbsent(K key, final Function<? super K, ? extends V> mappingFunction) {
+        int h = hash(key);
+        Segment<K, V> segment = segmentFor(h);
+        V value = segment.get(key, h);
+        if (value != null) {
+            return value;
+        }
+        return segment.compute(key, h, new BiFunction<K, V, V>() {
+            public V apply(K k, V old) {
+                return old != null ? old : mappingFunction.apply(k);
+            }
+        });
+    }
+
+    /**
+    * {@inheritDoc} Atomic; the function runs while the key's segment is
+    * locked, so it should be short and must not use the table.
+    */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int h = hash(key);
+        return segmentFor(h).compute(key, h, remappingFunction);
+    }
+
+    /**
+    * {@inheritDoc} Atomic, like compute. Null values are not supported.
+    */
+    public V merge(K key, final V value,
+            final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int h = hash(key);
+        return segmentFor(h).compute(key, h, new BiFunction<K, V, V>() {
+            public V apply(K k, V old) {
+                return old == null ? value : remappingFunction.apply(old, value);
+            }
+        });
+    }
+
+    /**
+    * Immutable chain node, except for its value. The next pointer is final so
+    * a published chain can never change underneath a reader.
+    */
+    static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+    * One lock stripe: a separately chained hash table guarded by its own lock
+    * for writes. The bucket array is read through an AtomicReferenceArray so
+    * that readers see fully constructed nodes.
+    */
+    static final class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+        int threshold;
+        final HashStrategy<? super K> strategy;
+
+        Segment(int capacity, HashStrategy<? super K> strategy) {
+            this.strategy = strategy;
+            setTable(new AtomicReferenceArray<Node<K, V>>(capacity));
+        }
+
+        /**
+        * Publish a new bucket array and update the resize threshold.
+        *
+        * @param newTable The bucket array to publish.
+        */
+        void setTable(AtomicReferenceArray<Node<K, V>> newTable) {
+            threshold = (int) (newTable.length() * LOAD_FACTOR);
+            table = newTable;
+        }
+
+        /**
+        * Lock-free lookup.
+        */
+        V get(K key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            Node<K, V> curr = tab.get(hash & (tab.length() - 1));
+
+            while (curr != null) {
+                if (curr.hash == hash && strategy.equals(curr.key, key)) {
+                    return curr.value;
+                }
+                curr = curr.next;
+            }
+            return null;
+        }
+
+        /**
+        * Insert or replace under the segment lock.
+        */
+        void add(K key, int hash, V value) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+
+                // Key already present, replace old value with new value
+                for (Node<K, V> curr = first; curr != null; curr = curr.next) {
+                    if (curr.hash == hash && strategy.equals(curr.key, key)) {
+                        curr.value = value;
+                        return;
+                    }
+                }
+
+                insert(tab, index, first, key, hash, value);
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+        * Find the node holding the key in a chain.
+        */
+        Node<K, V> find(Node<K, V> first, K key, int hash) {
+            Node<K, V> curr = first;
+            while (curr != null && !(curr.hash == hash && strategy.equals(curr.key, key))) {
+                curr = curr.next;
+            }
+            return curr;
+        }
+
+        /**
+        * Publish a new head for a key that is missing. The rest of the chain
+        * is untouched. Must hold the lock.
+        */
+        void insert(AtomicReferenceArray<Node<K, V>> tab, int index,
+                Node<K, V> first, K key, int hash, V value) {
+            tab.set(index, new Node<K, V>(hash, key, value, first));
+            count = count + 1;
+
+            if (count > threshold) {
+                rehash();
+            }
+        }
+
+        /**
+        * Add under the segment lock unless the key is present.
+        */
+        V putIfAbsent(K key, int hash, V value) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+                Node<K, V> found = find(first, key, hash);
+
+                if (found != null) {
+                    return found.value;
+                }
+                insert(tab, index, first, key, hash, value);
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+        * Replace, add or remove the key's value as decided by the function,
+        * all under the segment lock. The value is only written if it
+        * changed.
+        */
+        V compute(K key, int hash,
+                BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+                Node<K, V> found = find(first, key, hash);
+                V old = found == null ? null : found.value;
+                V value = remappingFunction.apply(key, old);
+
+                if (value == null) {
+                    if (found != null) {
+                        unlink(tab, index, first, found);
+                    }
+                }
+                else if (found != null) {
+                    if (value != old) {
+                        found.value = value;
+                    }
+                }
+                else {
+                    insert(tab, index, first, key, hash, value);
+                }
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+        * Remove under the segment lock by copying the nodes in front of the
+        * removed one onto the rest of the chain.
+        */
+        V remove(K key, int hash) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+                Node<K, V> found = find(first, key, hash);
+
+                // Key is not in the segment
+                if (found == null) {
+                    return null;
+                }
+                unlink(tab, index, first, found);
+                return found.value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+        * Unlink a node by cloning the prefix in front of it onto the rest of
+        * its chain. Must hold the lock.
+        */
+        void unlink(AtomicReferenceArray<Node<K, V>> tab, int index,
+                Node<K, V> first, Node<K, V> found) {
+            Node<K, V> newFirst = found.next;
+            for (Node<K, V> curr = first; curr != found; curr = curr.next) {
+                newFirst = new Node<K, V>(curr.hash, curr.key, curr.value, newFirst);
+            }
+            tab.set(index, newFirst);
+            count = count - 1;
+        }
+
+        /**
+        * Double the segment's bucket array. Each old chain splits into two
+        * new chains. The longest tail of a chain whose nodes all go to the
+        * same new bucket is reused as is, and only the nodes in front of it
+        * are cloned, so the old array stays valid for concurrent readers.
+        */
+        void rehash() {
+            AtomicReferenceArray<Node<K, V>> oldTable = table;
+            int oldCapacity = oldTable.length();
+            if (oldCapacity >= MAXIMUM_CAPACITY) {
+                return;
+            }
+
+            AtomicReferenceArray<Node<K, V>> newTable =
+                new AtomicReferenceArray<Node<K, V>>(oldCapacity * 2);
+            int newMask = oldCapacity * 2 - 1;
+
+            for (int i = 0; i < oldCapacity; i++) {
+                Node<K, V> first = oldTable.get(i);
+                if (first == null) {
+                    continue;
+                }
+
+                // Find the tail run that maps to a single new bucket
+                Node<K, V> lastRun = first;
+                int lastIndex = first.hash & newMask;
+                for (Node<K, V> curr = first.next; curr != null; curr = curr.next) {
+                    int index = curr.hash & newMask;
+                    if (index != lastIndex) {
+                        lastIndex = index;
+                        lastRun = curr;
+                    }
+                }
+                newTable.set(lastIndex, lastRun);
+
+                // Clone the nodes in front of the reused run
+                for (Node<K, V> curr = first; curr != lastRun; curr = curr.next) {
+                    int index = curr.hash & newMask;
+                    newTable.set(index, new Node<K, V>(curr.hash, curr.key,
+                        curr.value, newTable.get(index)));
+                }
+            }
+            setTable(newTable);
+        }
+    }
+
+    /**
+    * Performing hashtable operations from several threads at once.
+    */
+    public static void main(String[] args) throws InterruptedException {
+        final ConcurrentHashtable<Integer, String> ht =
+            new ConcurrentHashtable<Integer, String>(16);
+        final int perThread = 10000;
+        Thread[] threads = new Thread[4];
+
+        System.out.println("Inserting from " + threads.length + " threads.");
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * perThread;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = offset; i < offset + perThread; i++) {
+                        ht.add(i, "Value " + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 12345: " + ht.get(12345));
+        ht.remove(12345);
+        System.out.println("Size after removing key 12345: " + ht.getSize());
+    }
+}
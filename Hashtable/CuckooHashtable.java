@@ -0,0 +1,642 @@
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+* Hash table using bucketized cuckoo hashing. Every key has exactly two
+* candidate buckets, picked by two different hash functions, and each bucket
+* holds up to four entries. A lookup only ever looks at those two buckets
+* and a small stash, which is empty for well spread keys, so it takes a
+* constant number of key comparisons no matter how full the table is.
+*
+* An insert that finds both buckets full evicts a random entry from one of
+* them and moves it to its own alternate bucket, which may in turn evict
+* another entry, and so on. With four slots per bucket these chains stay
+* short even above 90% load. If a chain gets too long, the entry left without
+* a home is put in the stash instead, and the table grows once the stash
+* fills up.
+*
+* Keys with equal hashes share both buckets, so no amount of resizing can
+* separate them: past the eight slots of their two buckets, they all end up
+* in the stash, which grows without limit and is searched linearly. In that
+* worst case lookups are O(n), just as in a chained table whose strategy
+* hashes many keys alike. Use a HashStrategy that spreads the keys, such as
+* StringHashStrategy for untrusted strings, when this matters.
+*
+* The full hash of every entry is kept next to its key, so comparisons can
+* skip most equals calls and displaced entries find their alternate bucket
+* without hashing the key again. Null keys are not supported, since an empty
+* slot holds a null key.
+*/
+public class CuckooHashtable<K, V> implements HashtableInterface<K, V> {
+    private static final double DEFAULT_LOAD_FACTOR = 0.9;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int BUCKET_SHIFT = 2;
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+    private static final int MAX_KICKS = 256;
+    private static final int STASH_SIZE = 8;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+    private int capacity;
+    private int bucketMask;
+    private double loadFactor;
+    private int threshold;
+    private HashStrategy<? super K> strategy;
+
+    // Entries that did not fit in either of their buckets
+    private Object[] stashKeys;
+    private Object[] stashValues;
+    private int[] stashHashes;
+    private int stashSize;
+
+    // State of the xorshift generator that picks which entry to evict
+    private int random;
+
+    /**
+    * Constructor method for a CuckooHashtable.
+    *
+    * @param capacity The initial number of slots, rounded up to a power of two.
+    */
+    public CuckooHashtable(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+    * Constructor method for a CuckooHashtable.
+    *
+    * @param capacity The initial number of slots, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    */
+    public CuckooHashtable(int capacity, double loadFactor) {
+        this(capacity, loadFactor, new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for a CuckooHashtable that hashes and compares its
+    * keys with the given strategy.
+    *
+    * @param capacity The initial number of slots, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    * @param strategy The hash strategy for the keys.
+    */
+    public CuckooHashtable(int capacity, double loadFactor,
+            HashStrategy<? super K> strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
+        this.loadFactor = loadFactor;
+        this.strategy = strategy;
+        this.random = 0x2545f491;
+        allocate(tableSizeFor(capacity));
+        stashKeys = new Object[STASH_SIZE];
+        stashValues = new Object[STASH_SIZE];
+        stashHashes = new int[STASH_SIZE];
+        size = 0;
+    }
+
+    /**
+    * Round the requested capacity up to a power of two of at least two
+    * buckets.
+    *
+    * @param capacity The requested number of slots.
+    * @return the number of slots to allocate.
+    */
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2 * BUCKET_SIZE, Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+    * Allocate empty slot arrays of the given size.
+    *
+    * @param newCapacity The number of slots, a power of two.
+    */
+    private void allocate(int newCapacity) {
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        hashes = new int[newCapacity];
+        capacity = newCapacity;
+        bucketMask = (newCapacity >>> BUCKET_SHIFT) - 1;
+        threshold = (int) (newCapacity * loadFactor);
+    }
+
+    /**
+    * Hash the key with the strategy.
+    */
+    @SuppressWarnings("unchecked")
+    private int hash(Object key) {
+        return strategy.hash((K) key);
+    }
+
+    /**
+    * Hash a key that may be added, rejecting null keys.
+    */
+    private int hashKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("Null keys are not supported");
+        }
+        return hash(key);
+    }
+
+    /**
+    * Check if two keys are the same, as decided by the hash strategy.
+    */
+    @SuppressWarnings("unchecked")
+    private boolean keyEquals(Object a, Object b) {
+        return a == b || strategy.equals((K) a, (K) b);
+    }
+
+    /**
+    * The first candidate bucket, taken from the low bits of the hash.
+    */
+    private int bucket1(int hash) {
+        return hash & bucketMask;
+    }
+
+    /**
+    * The second candidate bucket. The hash is mixed again so that keys
+    * sharing a first bucket are spread over different second buckets.
+    */
+    private int bucket2(int hash) {
+        return SeededHashStrategy.mix(hash ^ 0x9e3779b9) & bucketMask;
+    }
+
+    /**
+    * Given one of the buckets of a hash, return the other one.
+    */
+    private int alternate(int bucket, int hash) {
+        int b1 = bucket1(hash);
+        return bucket == b1 ? bucket2(hash) : b1;
+    }
+
+    /**
+    * Look for the key in one bucket.
+    *
+    * @param bucket The bucket to search.
+    * @param hash The hash of the key.
+    * @param key The key to look for.
+    * @return the index of the slot holding the key, or -1 if not there.
+    */
+    private int findInBucket(int bucket, int hash, Object key) {
+        int start = bucket << BUCKET_SHIFT;
+        Object curr;
+
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            curr = keys[i];
+            if (curr != null && hashes[i] == hash && keyEquals(curr, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+    * Find the slot holding the key, looking at its two buckets only.
+    *
+    * @return the index of the slot, or -1 if the key is not in a bucket.
+    */
+    private int find(int hash, Object key) {
+        int index = findInBucket(bucket1(hash), hash, key);
+        if (index < 0) {
+            index = findInBucket(bucket2(hash), hash, key);
+        }
+        return index;
+    }
+
+    /**
+    * Find the key in the stash.
+    *
+    * @return the index in the stash, or -1 if the key is not stashed.
+    */
+    private int findInStash(int hash, Object key) {
+        for (int i = 0; i < stashSize; i++) {
+            if (stashHashes[i] == hash && keyEquals(stashKeys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+    * Store the entry in a free slot of the bucket, if it has one.
+    *
+    * @return true if the entry was stored, false if the bucket is full.
+    */
+    private boolean tryPut(int bucket, int hash, Object key, Object value) {
+        int start = bucket << BUCKET_SHIFT;
+
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            if (keys[i] == null) {
+                keys[i] = key;
+                values[i] = value;
+                hashes[i] = hash;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+    * Place an entry that is known not to be in the table. If both of its
+    * buckets are full, entries are kicked to their alternate buckets until
+    * one of them finds a free slot. When that takes too long, whichever
+    * entry is left over goes to the stash; every other entry is still in one
+    * of its own two buckets, so nothing has to be undone.
+    */
+    private void place(int hash, Object key, Object value) {
+        int bucket = bucket1(hash);
+        if (tryPut(bucket, hash, key, value)
+                || tryPut(bucket2(hash), hash, key, value)) {
+            return;
+        }
+
+        int slot;
+        int victimHash;
+        Object victimKey;
+        Object victimValue;
+
+        for (int kicks = 0; kicks < MAX_KICKS; kicks++) {
+
+            // Swap the homeless entry with a random entry of the bucket
+            slot = (bucket << BUCKET_SHIFT) + (nextRandom() & (BUCKET_SIZE - 1));
+            victimHash = hashes[slot];
+            victimKey = keys[slot];
+            victimValue = values[slot];
+            hashes[slot] = hash;
+            keys[slot] = key;
+            values[slot] = value;
+            hash = victimHash;
+            key = victimKey;
+            value = victimValue;
+
+            // The evicted entry tries its other bucket
+            bucket = alternate(bucket, hash);
+            if (tryPut(bucket, hash, key, value)) {
+                return;
+            }
+        }
+        stash(hash, key, value);
+    }
+
+    /**
+    * Append an entry to the stash. The stash only outgrows its initial size
+    * when the table cannot grow or keys share their full hash (see the class
+    * comment), since add resizes the table first.
+    */
+    private void stash(int hash, Object key, Object value) {
+        if (stashSize == stashKeys.length) {
+            stashKeys = Arrays.copyOf(stashKeys, stashSize * 2);
+            stashValues = Arrays.copyOf(stashValues, stashSize * 2);
+            stashHashes = Arrays.copyOf(stashHashes, stashSize * 2);
+        }
+        stashKeys[stashSize] = key;
+        stashValues[stashSize] = value;
+        stashHashes[stashSize] = hash;
+        stashSize++;
+    }
+
+    /**
+    * Next value of a xorshift generator, used to pick eviction victims.
+    */
+    private int nextRandom() {
+        int x = random;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        return random = x;
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Find the key in its two buckets or in the stash.
+    *
+    * @return the index of the slot holding the key, -(index + 2) for an
+    * index in the stash, or -1 if the key is not in the table.
+    */
+    private int locate(int hash, Object key) {
+        int index = find(hash, key);
+
+        // Only look in the stash if something was ever put there
+        if (index < 0 && stashSize != 0 && (index = findInStash(hash, key)) >= 0) {
+            return -(index + 2);
+        }
+        return index;
+    }
+
+    /**
+    * Read the value at a position returned by locate.
+    */
+    @SuppressWarnings("unchecked")
+    private V valueAt(int position) {
+        if (position >= 0) {
+            return (V) values[position];
+        }
+        return position == -1 ? null : (V) stashValues[-(position + 2)];
+    }
+
+    /**
+    * Replace the value at a position returned by locate.
+    */
+    private void setValueAt(int position, Object value) {
+        if (position >= 0) {
+            values[position] = value;
+        } else {
+            stashValues[-(position + 2)] = value;
+        }
+    }
+
+    /**
+    * Return the value associated with the specified key. O(1) unless many
+    * keys share a hash: at most two buckets and the stash are searched.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    public V get(K key) {
+        return valueAt(locate(hash(key), key));
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. O(1) on average.
+    *
+    * @param key The key, must not be null.
+    * @param value The value to associate with the key.
+    */
+    public void add(K key, V value) {
+        int h = hashKey(key);
+        int position = locate(h, key);
+
+        // Key already present, replace old value with new value
+        if (position != -1) {
+            setValueAt(position, value);
+            return;
+        }
+        addMissing(h, key, value);
+    }
+
+    /**
+    * Add a key that is known to be missing.
+    */
+    private void addMissing(int hash, Object key, Object value) {
+        place(hash, key, value);
+        size++;
+
+        // Grow when the table is full, or when the stash overflows on a
+        // table that is loaded enough for growing to help
+        if (size > threshold
+                || (stashSize > STASH_SIZE && size >= capacity / 2)) {
+            resize();
+        }
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. O(1) unless many
+    * keys share a hash, apart from refilling the freed slot from the stash.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    public V remove(K key) {
+        int position = locate(hash(key), key);
+
+        // Key is not in the table
+        if (position == -1) {
+            return null;
+        }
+
+        V removed = valueAt(position);
+        deleteAt(position);
+        return removed;
+    }
+
+    /**
+    * Remove the entry at a position returned by locate.
+    */
+    private void deleteAt(int position) {
+        size--;
+        if (position < 0) {
+            removeFromStash(-(position + 2));
+            return;
+        }
+
+        keys[position] = null;
+        values[position] = null;
+        if (stashSize != 0) {
+            unstash(position >>> BUCKET_SHIFT);
+        }
+    }
+
+    /**
+    * Store the result of an update at the position found for the key:
+    * replace the value, add the key if it was missing, or remove it if the
+    * result is null.
+    *
+    * @param position The position found by locate.
+    * @return the value stored.
+    */
+    private V update(int position, int hash, K key, V value) {
+        if (value == null) {
+            if (position != -1) {
+                deleteAt(position);
+            }
+        }
+        else if (position != -1) {
+            setValueAt(position, value);
+        }
+        else {
+            addMissing(hash, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    public V putIfAbsent(K key, V value) {
+        int h = hashKey(key);
+        int position = locate(h, key);
+        V old = valueAt(position);
+        if (old == null) {
+            update(position, h, key, value);
+        }
+        return old;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int h = hashKey(key);
+        int position = locate(h, key);
+        V value = valueAt(position);
+        if (value == null && (value = mappingFunction.apply(key)) != null) {
+            update(position, h, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int h = hashKey(key);
+        int position = locate(h, key);
+        return update(position, h, key, remappingFunction.apply(key, valueAt(position)));
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int h = hashKey(key);
+        int position = locate(h, key);
+        V old = valueAt(position);
+        return update(position, h, key, old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+    * Move a stashed entry that belongs to the given bucket into the slot
+    * that was just freed there, so the stash drains as the table empties.
+    *
+    * @param bucket The bucket that has a free slot.
+    */
+    private void unstash(int bucket) {
+        int hash;
+
+        for (int i = 0; i < stashSize; i++) {
+            hash = stashHashes[i];
+            if (bucket1(hash) == bucket || bucket2(hash) == bucket) {
+                tryPut(bucket, hash, stashKeys[i], stashValues[i]);
+                removeFromStash(i);
+                return;
+            }
+        }
+    }
+
+    /**
+    * Remove an entry from the stash by moving the last one into its place.
+    */
+    private void removeFromStash(int index) {
+        stashSize--;
+        stashKeys[index] = stashKeys[stashSize];
+        stashValues[index] = stashValues[stashSize];
+        stashHashes[index] = stashHashes[stashSize];
+        stashKeys[stashSize] = null;
+        stashValues[stashSize] = null;
+    }
+
+    /**
+    * Double the number of slots and place every entry again, including the
+    * stashed ones. Placing uses the stored hashes, so keys are not hashed
+    * again.
+    */
+    private void resize() {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            if (size > threshold) {
+                throw new IllegalStateException("Hash table is full");
+            }
+            return;
+        }
+
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        Object[] oldStashKeys = stashKeys;
+        Object[] oldStashValues = stashValues;
+        int[] oldStashHashes = stashHashes;
+        int oldStashSize = stashSize;
+
+        allocate(capacity * 2);
+        stashKeys = new Object[STASH_SIZE];
+        stashValues = new Object[STASH_SIZE];
+        stashHashes = new int[STASH_SIZE];
+        stashSize = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                place(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+        for (int i = 0; i < oldStashSize; i++) {
+            place(oldStashHashes[i], oldStashKeys[i], oldStashValues[i]);
+        }
+    }
+
+    /**
+    * Print the contents of every bucket and of the stash.
+    */
+    public void print() {
+        for (int b = 0; b <= bucketMask; b++) {
+            StringBuilder line = new StringBuilder("Bucket " + b + ":");
+            for (int i = b << BUCKET_SHIFT; i < (b + 1) << BUCKET_SHIFT; i++) {
+                if (keys[i] != null) {
+                    line.append(" ").append(keys[i]).append(" -> ").append(values[i]);
+                }
+            }
+            System.out.println(line);
+        }
+        for (int i = 0; i < stashSize; i++) {
+            System.out.println("Stash: " + stashKeys[i] + " -> " + stashValues[i]);
+        }
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new cuckoo hashtable.");
+        CuckooHashtable<Integer, String> ht = new CuckooHashtable<Integer, String>(8);
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Inserting 3 elements.");
+        ht.add(1, "Hello");
+        ht.add(2, "World");
+        ht.add(9, "Again");
+        System.out.println("Size: " + ht.getSize());
+        ht.print();
+
+        System.out.println("Deleting element with key 2 :).");
+        ht.remove(2);
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 9: " + ht.get(9));
+
+        System.out.println("Filling 1024 slots up to the load factor.");
+        CuckooHashtable<Integer, Integer> full = new CuckooHashtable<Integer, Integer>(1024);
+        for (int i = 0; i < 921; i++) {
+            full.add(i, i);
+        }
+        System.out.println("Size: " + full.getSize() + ", slots: " + full.capacity
+            + ", stashed: " + full.stashSize);
+    }
+}
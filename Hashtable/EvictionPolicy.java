@@ -0,0 +1,29 @@
+/**
+* Decides which entry a BoundedCache evicts when it is over its maximum size
+* or weight. The cache tells the policy about every insert, hit and removal,
+* then asks it for a victim as long as it is too big. These calls happen on
+* every cache operation, so they should be O(1) and not allocate.
+*/
+public interface EvictionPolicy<K, V> {
+
+	/**
+	* A new entry was added to the cache.
+	*/
+	void onInsert(CacheEntry<K, V> entry);
+
+	/**
+	* An entry was read, or its value was replaced.
+	*/
+	void onAccess(CacheEntry<K, V> entry);
+
+	/**
+	* An entry left the cache, either removed or evicted.
+	*/
+	void onRemove(CacheEntry<K, V> entry);
+
+	/**
+	* Pick the entry to evict next. The cache then removes it and calls
+	* onRemove. Only called while the cache holds at least one entry.
+	*/
+	CacheEntry<K, V> victim();
+}
@@ -0,0 +1,23 @@
+/**
+* Decides how a hash table hashes and compares its keys. Tables index their
+* buckets by masking off the low bits of the hash (their capacities are powers
+* of two), and some use the high bits too, so a strategy should spread the
+* information in the key across all 32 bits. SeededHashStrategy does this for
+* any key by mixing its hashCode with a per-instance random seed.
+*
+* A strategy can also be written for a particular key type, such as byte
+* arrays or strings, to hash the contents directly without calling hashCode
+* and to compare keys by content.
+*/
+public interface HashStrategy<K> {
+
+	/**
+	* Compute a well-mixed hash of the key.
+	*/
+	int hash(K key);
+
+	/**
+	* Check if two keys are the same key.
+	*/
+	boolean equals(K a, K b);
+}
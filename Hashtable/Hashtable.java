@@ -1,29 +1,119 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Hashtable<K, V> implements HashtableInterface<K, V>, Iterable<Map.Entry<K, V>> {
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    // Number of old buckets drained into the new table on each operation
+    private static final int MIGRATION_STEP = 4;
+
+    // Chain length at which a bucket becomes a tree, and back to a chain
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
+
+    // Number of keys getAll and addAll hash before probing any of them
+    private static final int BATCH_SIZE = 64;
 
-public class Hashtable<K, V> implements HashtableInterface<K, V> {
     private ArrayList<Node<K, V>> buckets;
     private int size;
     private int capacity;
+    private double loadFactor;
+    private HashStrategy<? super K> strategy;
+
+    // While resizing, the previous table and how much of it has been moved
+    private ArrayList<Node<K, V>> oldBuckets;
+    private int oldCapacity;
+    private int migrated;
+
+    // Counters for getStats, kept as plain fields since the table is not
+    // thread-safe anyway and an increment is all they cost
+    private long addCount;
+    private long collisionCount;
+    private long getCount;
+    private long probeCount;
+    private long resizeCount;
+    private long movedBuckets;
 
     /**
     * Constructor method for a Hashtable. 
     * 
-    * @param capacity The capacity of the hash table.
+    * @param capacity The capacity of the hash table, rounded up to a power
+    * of two.
     */
-    @SuppressWarnings("unchecked")
     public Hashtable(int capacity) {
-        
-        // Java does not allow for generic array creation, so we cast it
-        buckets = new ArrayList<>();
-        
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+    * Constructor method for a Hashtable that grows once the load factor
+    * (entries / buckets) passes the given threshold.
+    * 
+    * @param capacity The initial capacity of the hash table, rounded up to a
+    * power of two.
+    * @param loadFactor The load factor that triggers a resize.
+    */
+    public Hashtable(int capacity, double loadFactor) {
+        this(capacity, loadFactor, new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for a Hashtable that hashes and compares its keys
+    * with the given strategy.
+    * 
+    * @param capacity The initial capacity of the hash table, rounded up to a
+    * power of two.
+    * @param loadFactor The load factor that triggers a resize.
+    * @param strategy The hash strategy for the keys.
+    */
+    public Hashtable(int capacity, double loadFactor, HashStrategy<? super K> strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (loadFactor <= 0 || Double.isNaN(loadFactor)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
         // Initialize Hashtable properties
         size = 0;
-        this.capacity = capacity;
-        
+        this.capacity = capacity >= MAXIMUM_CAPACITY
+            ? MAXIMUM_CAPACITY : Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        this.loadFactor = loadFactor;
+        this.strategy = strategy;
+        buckets = emptyBuckets(this.capacity);
+    }
+
+    /**
+    * Create a list of empty chains. Java does not allow for generic array
+    * creation, so we use an ArrayList of head nodes instead.
+    *
+    * @param capacity The number of buckets.
+    * @return the list of empty buckets.
+    */
+    private ArrayList<Node<K, V>> emptyBuckets(int capacity) {
+        ArrayList<Node<K, V>> list = new ArrayList<>(capacity);
+
         // Create empty chains
         for (int i = 0; i < capacity; i++) {
-            buckets.add(null);
+            list.add(null);
         }
+        return list;
     }
  	
  	/**
@@ -45,25 +135,174 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
     }
  	
  	/**
- 	* Map the key to an index in the hash table. Data stored in the hash table
- 	* must have a key and a value. The hash function maps the set of keys to
- 	* the set of nonzero integers that correspond to valid indices in the 
- 	* hash table. Every hash function has two parts: a hash code and
- 	* compressor. The hash code is an integer, and in Java, every Object
- 	* has its own hash code. The compressor is the modulo operator, which
- 	* ensures that the codomain of the hash function is the set of valid
- 	* indices.
- 	* 
+ 	* Get the hash code of a key from the hash strategy. By default this is
+ 	* the key's own hash code, mixed with a random seed so that every bit of
+ 	* it matters. It is computed once per operation and kept in each node, so
+ 	* that chains and trees can compare it before comparing keys.
+ 	*
  	* @param key The key of the data stored in the hash table.
- 	* @return the index to store the data.
+ 	* @return the hash code of the key.
  	*/
     private int hash(K key) {
+        return strategy.hash(key);
+    }
+
+    /**
+    * Check if two keys are the same, as decided by the hash strategy.
+    *
+    * @param a A key stored in the table.
+    * @param b The key being looked up.
+    * @return true if they are the same key.
+    */
+    @SuppressWarnings("unchecked")
+    private boolean keyEquals(Object a, Object b) {
+        return strategy.equals((K) a, (K) b);
+    }
+
+ 	/**
+ 	* Map a hash code to an index in the hash table. Data stored in the hash
+ 	* table must have a key and a value. The hash function maps the set of
+ 	* keys to the set of nonzero integers that correspond to valid indices in
+ 	* the hash table. Every hash function has two parts: a hash code and
+ 	* compressor. The capacity is always a power of two, so the compressor
+ 	* just keeps the low bits of the hash code with a bit mask, which is much
+ 	* cheaper than a division and never negative.
+ 	* 
+ 	* @param hash The hash code of the key.
+ 	* @param capacity The number of buckets in the table being indexed.
+ 	* @return the index to store the data.
+ 	*/
+    private int indexFor(int hash, int capacity) {
+
+        // Compress the hash code using a bit mask
+        return hash & (capacity - 1);
+    }
+
+    /**
+    * Get the first node of a bucket's chain. A bucket that has been turned
+    * into a tree starts with a TreeBin, whose next node is the first one in
+    * the list of its tree nodes.
+    *
+    * @param head The node stored in the bucket.
+    * @return the first node holding an entry, or null if empty.
+    */
+    private Node<K, V> first(Node<K, V> head) {
+        return head instanceof TreeBin ? head.getNext() : head;
+    }
+
+    /**
+    * Prepare the table for an operation on the given key. If a resize is in
+    * progress, the key's old bucket is moved first so that the key can only
+    * be in the new table, then a few more old buckets are moved. This spreads
+    * the cost of rehashing over many calls instead of a single slow one.
+    *
+    * @param hash The hash code of the key about to be used.
+    */
+    private void locate(int hash) {
+        if (oldBuckets == null) {
+            return;
+        }
+
+        // The key's own bucket must be moved before we look in the new table
+        migrateBucket(indexFor(hash, oldCapacity));
+
+        // Make progress on the rest of the old table
+        for (int i = 0; i < MIGRATION_STEP && migrated < oldCapacity; i++) {
+            migrateBucket(migrated++);
+        }
+
+        // Every old bucket has been moved, so drop the old table
+        if (migrated == oldCapacity) {
+            oldBuckets = null;
+        }
+    }
+
+    /**
+    * Move every node in one bucket of the old table into the new table. The
+    * nodes themselves are relinked, so no allocation happens unless one of
+    * the two new chains is long enough to become a tree. Since the table
+    * exactly doubled, the nodes can only go to the same index or to the
+    * index plus the old capacity, and both of those buckets are still empty.
+    *
+    * @param index The index of the bucket in the old table.
+    */
+    private void migrateBucket(int index) {
+        Node<K, V> curr = first(oldBuckets.get(index));
+        Node<K, V> next;
+        int newIndex;
+        int lowCount = 0;
+        int highCount = 0;
+
+        // Bucket is empty or has already been moved
+        if (curr == null) {
+            return;
+        }
+        oldBuckets.set(index, null);
+        movedBuckets++;
+
+        // Push each node to the front of its chain in the new table
+        while (curr != null) {
+            next = curr.getNext();
+            newIndex = indexFor(curr.hash, capacity);
+            curr.setNext(buckets.get(newIndex));
+            buckets.set(newIndex, curr);
+            if (newIndex == index) {
+                lowCount++;
+            }
+            else {
+                highCount++;
+            }
+            curr = next;
+        }
+
+        // Chains that are still too long become trees again
+        if (lowCount >= TREEIFY_THRESHOLD) {
+            treeify(index);
+        }
+        if (highCount >= TREEIFY_THRESHOLD) {
+            treeify(index + oldCapacity);
+        }
+    }
+
+    /**
+    * Turn a bucket's chain into a balanced tree ordered by hash code, so that
+    * a bucket with many colliding keys is searched in O(log n).
+    *
+    * @param index The index of the bucket in the current table.
+    */
+    private void treeify(int index) {
+        Node<K, V> curr = buckets.get(index);
+        TreeBin<K, V> bin = new TreeBin<K, V>();
+
+        while (curr != null) {
+            bin.insert(new TreeNode<K, V>(curr.hash, curr.getKey(), curr.getValue()));
+            curr = curr.getNext();
+        }
+        buckets.set(index, bin);
+    }
+
+    /**
+    * Double the number of buckets. Only the new, empty table is allocated
+    * here; the entries are moved over by later calls to locate.
+    */
+    private void resize() {
+
+        // Table cannot double any further
+        if (capacity > MAXIMUM_CAPACITY / 2) {
+            return;
+        }
 
-    	// Use Java's built in hash code function
-        int hashCode = key.hashCode();
+        // Finish any resize still in progress before starting another one
+        while (oldBuckets != null && migrated < oldCapacity) {
+            migrateBucket(migrated++);
+        }
 
-        // Compress the hash code using modulo operator
-        return hashCode % capacity;
+        oldBuckets = buckets;
+        oldCapacity = capacity;
+        migrated = 0;
+        capacity = 2 * capacity;
+        buckets = emptyBuckets(capacity);
+        resizeCount++;
     }
  
     /**
@@ -75,78 +314,151 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
     * @return the value held by the deleted node.
     */
     public V remove(K key) {
-    	int index = 0;
-    	Node<K, V> curr = null;
-    	Node<K, V> prev = null;
-    	Node<K, V> found = null;
 
-        // Apply hash function to determine index for given key and grab head
-        index = hash(key);
-        curr = buckets.get(index);
- 		
- 		// Entry is empty
- 		if (curr == null) {
- 			return null;
- 		}
+        // Apply hash function to determine index for given key
+        int hash = hash(key);
+        locate(hash);
+        return removeNode(indexFor(hash, capacity), hash, key);
+    }
+
+    /**
+    * Remove the node holding the key from a bucket of the current table.
+    *
+    * @param index The index of the key's bucket.
+    * @param hash The hash of the key.
+    * @param key The key to identify the pair.
+    * @return the value held by the deleted node, or null if not found.
+    */
+    private V removeNode(int index, int hash, Object key) {
+        Node<K, V> prev = findPrevious(index, hash, key);
+        Node<K, V> found = nodeAfter(index, prev, hash, key);
+
+        // Key is not in the bucket
+        if (found == null) {
+            return null;
+        }
+
+        // Save the value first, since deleting may move entries between nodes
+        V value = found.getValue();
+        unlinkNode(index, prev, found);
+        return value;
+    }
+
+    /**
+    * Find the node in front of the one holding the key, so that the key can
+    * be unlinked without searching the chain again.
+    *
+    * @param index The index of the key's bucket.
+    * @param hash The hash of the key.
+    * @param key The key to look for.
+    * @return null if the bucket is empty, is a tree, or starts with the key,
+    * otherwise the node whose next one holds the key, or the last node of the
+    * chain if the key is missing.
+    */
+    private Node<K, V> findPrevious(int index, int hash, Object key) {
+        Node<K, V> prev = buckets.get(index);
+        Node<K, V> curr;
+
+        if (prev == null || prev instanceof TreeBin
+                || prev.hash == hash && keyEquals(prev.getKey(), key)) {
+            return null;
+        }
+        while ((curr = prev.getNext()) != null
+                && !(curr.hash == hash && keyEquals(curr.getKey(), key))) {
+            prev = curr;
+        }
+        return prev;
+    }
 
-        // Search for desired node in linked list
+    /**
+    * Get the node holding the key, given the result of findPrevious.
+    *
+    * @return the node, or null if the key is missing.
+    */
+    private Node<K, V> nodeAfter(int index, Node<K, V> prev, int hash, Object key) {
+        if (prev != null) {
+            return prev.getNext();
+        }
+        Node<K, V> head = buckets.get(index);
+
+        // Bucket is a tree, search it in O(log n)
+        if (head instanceof TreeBin) {
+            return ((TreeBin<K, V>) head).find(hash, key);
+        }
+        return head;
+    }
+
+    /**
+    * Unlink a node from its bucket of the current table.
+    *
+    * @param index The index of the node's bucket.
+    * @param prev The node in front of it, as found by findPrevious.
+    * @param node The node to unlink.
+    */
+    private void unlinkNode(int index, Node<K, V> prev, Node<K, V> node) {
+        Node<K, V> head = buckets.get(index);
+        size--;
+
+        // Bucket is a tree, delete in O(log n)
+        if (head instanceof TreeBin) {
+            TreeBin<K, V> bin = (TreeBin<K, V>) head;
+            bin.delete((TreeNode<K, V>) node);
+
+            // Tree got small, its list of nodes becomes the bucket's chain
+            if (bin.count <= UNTREEIFY_THRESHOLD) {
+                buckets.set(index, bin.getNext());
+            }
+        }
+
+        // Node to delete is the first one
+        else if (prev == null) {
+            buckets.set(index, node.getNext());
+        }
+
+        // Node to delete is somewhere else in the list
         else {
-	        while (curr != null) {
-
-	        	// Found node holding data with desired key
-	        	if (curr.getKey().equals(key)) {
-
-	        		// Save the node to be unlinked
-	        		found = curr;
-                    size--;
-	        		break;
-	        	}
-
-	        	// Move on in the chain
-	        	else {
-		            prev = curr;
-		            curr = curr.getNext();
-	        	}           
-	        }
-
-	        // Node to delete is the first one
-	        if (prev == null) {
-                buckets.set(index, curr.getNext());
-	        }
-
-	        // Node to delete is somewhere else in the list
-	        else {
-	        	prev.setNext(curr.getNext());
-	        }
- 		}
- 		
- 		// Return data held by node
-        return found.getValue();
+            prev.setNext(node.getNext());
+        }
     }
  
     /**
     * Return the value associated with the specified key. Computes the index
     * of the hash table with the given key using the hash function. Then, 
     * traverse the linked list, if exists to find the value associated with the
-    * key. Does this in O(1) time on average. Worst case, O(n), when all items
-    * are in the same linked list.
+    * key. Does this in O(1) time on average. Worst case, O(log n), when all
+    * items are in the same bucket, which has then been turned into a tree.
     *
     * @param key The key that pairs to the desired value.
     * @return the value associated with the key.
     */
     public V get(K key) {
+        int hash;
         int index;
         Node<K, V> curr;
 
         // Find the head node
-        index = hash(key);
+        hash = hash(key);
+        locate(hash);
+        index = indexFor(hash, capacity);
         curr = buckets.get(index);
+        getCount++;
+
+        // Bucket is a tree, search it in O(log n)
+        if (curr instanceof TreeBin) {
+            TreeBin<K, V> bin = (TreeBin<K, V>) curr;
+
+            // Count the tree's height, the most nodes a search can visit
+            probeCount += bin.root == null ? 0 : bin.root.height;
+            curr = bin.find(hash, key);
+            return curr == null ? null : curr.getValue();
+        }
  
         // Traverse the linked list to find the node with the key
         while (curr != null) {
+            probeCount++;
 
             // Found node holding key
-            if (curr.getKey().equals(key)) {
+            if (curr.hash == hash && keyEquals(curr.getKey(), key)) {
 
                 // Return value associated with key
                 return curr.getValue();
@@ -162,72 +474,511 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
  
     /**
     * Adds a key, value pair to the hash table. Does this in O(1) time on 
-    * average. Adds to the front of the linked list.
+    * average. Adds to the front of the linked list, and turns the bucket into
+    * a tree once the chain gets long.
     *
     * @param key
     * @param value
     */
     public void add(K key, V value) {
+        int hash;
         int index;
         Node<K, V> curr;
 
-        // Find the head in the specified index
-        index = hash(key);
-        curr = buckets.get(index);
- 
-        // Check if we already have an entry in the linked list
-        while (curr != null) {
+        // Find the key's bucket
+        hash = hash(key);
+        locate(hash);
+        index = indexFor(hash, capacity);
+        curr = findNode(index, hash, key);
 
-            // Found a node with the same key
-            if (curr.getKey().equals(key)) {
+        // Found a node with the same key, replace old value with new value
+        if (curr != null) {
+            curr.setValue(value);
+            return;
+        }
+        insertNode(index, hash, key, value);
+    }
 
-                // Replace old value with new value
-                curr.setValue(value);
-                return;
-            }
+    /**
+    * Find the node holding the key in a bucket of the current table.
+    *
+    * @param index The index of the key's bucket.
+    * @param hash The hash of the key.
+    * @param key The key to look for.
+    * @return the node, or null if the key is not in the table.
+    */
+    private Node<K, V> findNode(int index, int hash, Object key) {
+        return findNode(buckets.get(index), hash, key);
+    }
+
+    /**
+    * Find the node holding the key, starting from a bucket's head.
+    */
+    private Node<K, V> findNode(Node<K, V> curr, int hash, Object key) {
 
-            // Go to the next node
+        // Bucket is a tree, search it in O(log n)
+        if (curr instanceof TreeBin) {
+            return ((TreeBin<K, V>) curr).find(hash, key);
+        }
+
+        while (curr != null) {
+            if (curr.hash == hash && keyEquals(curr.getKey(), key)) {
+                return curr;
+            }
             curr = curr.getNext();
         }
-    
-        // Grab the first node in the linked list
-        curr = buckets.get(index);
+        return null;
+    }
+
+    /**
+    * Add a key that is known to be missing to its bucket. Adds to the front
+    * of the linked list, and turns the bucket into a tree once the chain
+    * gets long.
+    *
+    * @param index The index of the key's bucket, as found by findNode.
+    * @param hash The hash of the key.
+    * @param key The key.
+    * @param value The value.
+    */
+    private void insertNode(int index, int hash, K key, V value) {
+        Node<K, V> curr = buckets.get(index);
+        int length = 0;
 
-        // Create a new node and insert to the front of the linked list
-        Node<K, V> newNode = new Node<K, V>(key, value);
-        newNode.setNext(curr);
-        buckets.set(index, newNode);
+        // Bucket is a tree, insert in O(log n)
+        if (curr instanceof TreeBin) {
+            ((TreeBin<K, V>) curr).insert(new TreeNode<K, V>(hash, key, value));
+            collisionCount++;
+        }
+
+        else {
+            if (curr != null) {
+                collisionCount++;
+            }
+
+            // Create a new node and insert to the front of the linked list
+            Node<K, V> newNode = new Node<K, V>(hash, key, value);
+            newNode.setNext(curr);
+            buckets.set(index, newNode);
+
+            // Chain got too long, turn it into a tree. Chains are shorter
+            // than the threshold and were just searched, so counting only
+            // touches a few nodes that are already in cache.
+            while (curr != null && length + 1 < TREEIFY_THRESHOLD) {
+                curr = curr.getNext();
+                length++;
+            }
+            if (length + 1 >= TREEIFY_THRESHOLD) {
+                treeify(index);
+            }
+        }
         size++;
+        addCount++;
  
-        // If load factor goes beyond threshold, then
-        // double hash table size
-        // if ((1.0*size)/numBuckets >= 0.7)
-        // {
-        //     ArrayList<HashNode<K, V>> temp = bucketArray;
-        //     bucketArray = new ArrayList<>();
-        //     numBuckets = 2 * numBuckets;
-        //     size = 0;
-        //     for (int i = 0; i < numBuckets; i++)
-        //         bucketArray.add(null);
- 
-        //     for (HashNode<K, V> headNode : temp)
-        //     {
-        //         while (headNode != null)
-        //         {
-        //             add(headNode.key, headNode.value);
-        //             headNode = headNode.next;
-        //         }
-        //     }
-        // }
+        // If load factor goes beyond threshold, then double hash table size.
+        // The entries are moved over gradually by the following operations.
+        if (size > capacity * loadFactor) {
+            resize();
+        }
     }
 
+    /**
+    * Look up a batch of keys. The keys of each block of 64 are hashed
+    * first, then all of their bucket heads are loaded, then the first node
+    * of each bucket is read, and only then are the chains searched. The
+    * loads within each pass do not depend on each other, so the processor
+    * can have many cache misses in flight at once instead of one per lookup.
+    *
+    * @param keys The keys to look up.
+    * @param out Receives the value of keys[i] (or null) at index i.
+    */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void getAll(K[] keys, V[] out) {
+        int length = Math.min(keys.length, BATCH_SIZE);
+        int[] hashes = new int[length];
+        int[] firstHashes = new int[length];
+        Node<K, V>[] heads = (Node<K, V>[]) new Node[length];
+        Node<K, V> curr;
+        K key;
+
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            length = Math.min(BATCH_SIZE, keys.length - start);
+
+            // Hash the block, and move the keys' old buckets if resizing
+            for (int i = 0; i < length; i++) {
+                hashes[i] = hash(keys[start + i]);
+                locate(hashes[i]);
+            }
+
+            // Load the bucket heads
+            for (int i = 0; i < length; i++) {
+                heads[i] = buckets.get(indexFor(hashes[i], capacity));
+            }
+
+            // Load the first node of each bucket
+            for (int i = 0; i < length; i++) {
+                firstHashes[i] = heads[i] == null ? 0 : heads[i].hash;
+            }
+
+            // Search, counting probes the same way get does
+            for (int i = 0; i < length; i++) {
+                curr = heads[i];
+                key = keys[start + i];
+
+                // Bucket is a tree, search it in O(log n)
+                if (curr instanceof TreeBin) {
+                    TreeBin<K, V> bin = (TreeBin<K, V>) curr;
+                    probeCount += bin.root == null ? 0 : bin.root.height;
+                    curr = bin.find(hashes[i], key);
+                }
+
+                // Check the first node with the hash loaded above, then walk
+                else if (curr != null) {
+                    probeCount++;
+                    if (firstHashes[i] != hashes[i] || !keyEquals(curr.getKey(), key)) {
+                        while ((curr = curr.getNext()) != null) {
+                            probeCount++;
+                            if (curr.hash == hashes[i] && keyEquals(curr.getKey(), key)) {
+                                break;
+                            }
+                        }
+                    }
+                }
+                out[start + i] = curr == null ? null : curr.getValue();
+                heads[i] = null;
+            }
+            getCount += length;
+        }
+    }
+
+    /**
+    * Add a batch of key, value pairs, in order. The keys of each block of 64
+    * are hashed first, so the loads of the key objects overlap, and are then
+    * added one at a time.
+    *
+    * @param keys The keys to add.
+    * @param values The value for keys[i] at index i.
+    */
+    public void addAll(K[] keys, V[] values) {
+        int length = Math.min(keys.length, BATCH_SIZE);
+        int[] hashes = new int[length];
+        int index;
+        Node<K, V> curr;
+
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            length = Math.min(BATCH_SIZE, keys.length - start);
+
+            for (int i = 0; i < length; i++) {
+                hashes[i] = hash(keys[start + i]);
+            }
+
+            // Inserts may resize the table, so buckets are found one by one
+            for (int i = 0; i < length; i++) {
+                locate(hashes[i]);
+                index = indexFor(hashes[i], capacity);
+                curr = findNode(index, hashes[i], keys[start + i]);
+                if (curr != null) {
+                    curr.setValue(values[start + i]);
+                }
+                else {
+                    insertNode(index, hashes[i], keys[start + i], values[start + i]);
+                }
+            }
+        }
+    }
+
+    /**
+    * Store a value in the node found for the key, or add a new node if there
+    * was none.
+    */
+    private void store(Node<K, V> node, int index, int hash, K key, V value) {
+        if (node != null) {
+            node.setValue(value);
+        }
+        else {
+            insertNode(index, hash, key, value);
+        }
+    }
+
+    /**
+    * Store the result of compute or merge for the key found by findPrevious
+    * and nodeAfter, or unlink its node if the result is null.
+    *
+    * @return the value stored.
+    */
+    private V update(int index, Node<K, V> prev, Node<K, V> node, int hash, K key, V value) {
+        if (value != null) {
+            store(node, index, hash, key, value);
+        }
+        else if (node != null) {
+            unlinkNode(index, prev, node);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed and searched for once.
+    */
+    public V putIfAbsent(K key, V value) {
+        int hash = hash(key);
+        locate(hash);
+        int index = indexFor(hash, capacity);
+        Node<K, V> node = findNode(index, hash, key);
+        V old = node == null ? null : node.getValue();
+
+        if (old == null) {
+            store(node, index, hash, key, value);
+        }
+        return old;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed and searched for once.
+    */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int hash = hash(key);
+        locate(hash);
+        int index = indexFor(hash, capacity);
+        Node<K, V> node = findNode(index, hash, key);
+        V value = node == null ? null : node.getValue();
+
+        if (value == null && (value = mappingFunction.apply(key)) != null) {
+            store(node, index, hash, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed and searched for once.
+    */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        locate(hash);
+        int index = indexFor(hash, capacity);
+        Node<K, V> prev = findPrevious(index, hash, key);
+        Node<K, V> node = nodeAfter(index, prev, hash, key);
+        V old = node == null ? null : node.getValue();
+
+        return update(index, prev, node, hash, key, remappingFunction.apply(key, old));
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed and searched for once.
+    */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        locate(hash);
+        int index = indexFor(hash, capacity);
+        Node<K, V> prev = findPrevious(index, hash, key);
+        Node<K, V> node = nodeAfter(index, prev, hash, key);
+        V old = node == null ? null : node.getValue();
+
+        return update(index, prev, node, hash, key,
+            old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+    * Get an iterator over the key, value pairs, in no particular order. The
+    * entries are the table's own nodes, so setValue changes the table. The
+    * table must not be changed (or read with get, which may move buckets
+    * during a resize) while iterating.
+    *
+    * @return the iterator.
+    */
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+    * Get a spliterator over the key, value pairs. It splits by ranges of
+    * buckets, so a parallel stream can hand each core its own part of the
+    * table without copying any entries.
+    *
+    * @return the spliterator.
+    */
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new EntrySpliterator(0, capacity + (oldBuckets == null ? 0 : oldCapacity));
+    }
+
+    /**
+    * Get a stream of the key, value pairs. Call parallel() on it to scan the
+    * table with every core.
+    *
+    * @return the stream.
+    */
+    public Stream<Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+    * Get a stream of the keys.
+    *
+    * @return the stream.
+    */
+    public Stream<K> keys() {
+        return stream().map(entry -> entry.getKey());
+    }
+
+    /**
+    * Get a stream of the values.
+    *
+    * @return the stream.
+    */
+    public Stream<V> values() {
+        return stream().map(entry -> entry.getValue());
+    }
+
+    /**
+    * Perform the given action on every key, value pair, in no particular
+    * order. The table must not be changed by the action.
+    *
+    * @param action The action to perform on each pair.
+    */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(buckets, capacity, action);
+
+        if (oldBuckets != null) {
+            forEach(oldBuckets, oldCapacity, action);
+        }
+    }
+
+    /**
+    * Helper function for forEach.
+    */
+    private void forEach(ArrayList<Node<K, V>> table, int length,
+            BiConsumer<? super K, ? super V> action) {
+        Node<K, V> curr;
+
+        for (int i = 0; i < length; i++) {
+            for (curr = first(table.get(i)); curr != null; curr = curr.getNext()) {
+                action.accept(curr.getKey(), curr.getValue());
+            }
+        }
+    }
+
+    /**
+    * Write the contents of the table to a snapshot file, one entry at a
+    * time. The file can later be opened with MappedHashtable, which serves
+    * lookups from it without reinserting the entries.
+    *
+    * @param path Where to write the snapshot.
+    * @param keyCodec Converts keys to bytes.
+    * @param valueCodec Converts values to bytes.
+    */
+    public void snapshot(Path path, Codec<? super K> keyCodec, Codec<? super V> valueCodec)
+            throws IOException {
+        SnapshotWriter writer = new SnapshotWriter(path, size);
+
+        try {
+            snapshot(writer, buckets, capacity, keyCodec, valueCodec);
+            if (oldBuckets != null) {
+                snapshot(writer, oldBuckets, oldCapacity, keyCodec, valueCodec);
+            }
+        } catch (Throwable e) {
+            SnapshotWriter.abort(writer, e);
+            throw e;
+        }
+        writer.close();
+    }
+
+    /**
+    * Helper function for snapshot.
+    */
+    private void snapshot(SnapshotWriter writer, ArrayList<Node<K, V>> table, int length,
+            Codec<? super K> keyCodec, Codec<? super V> valueCodec) throws IOException {
+        Node<K, V> curr;
+
+        for (int i = 0; i < length; i++) {
+            for (curr = first(table.get(i)); curr != null; curr = curr.getNext()) {
+                writer.add(keyCodec.encode(curr.getKey()), valueCodec.encode(curr.getValue()));
+            }
+        }
+    }
+
+    /**
+    * Collect statistics about the table's internals: its load, the length of
+    * its chains, and counters kept since it was created. Walks every bucket
+    * to build the chain length histogram, so for very large tables consider
+    * getStats(sampleSize) instead.
+    *
+    * @return a snapshot of the statistics.
+    */
+    public HashtableStats getStats() {
+        return getStats(Integer.MAX_VALUE);
+    }
+
+    /**
+    * Collect statistics about the table's internals, building the chain
+    * length histogram from at most the given number of buckets, spread
+    * evenly across the table. The counters are always exact. While a resize
+    * is in progress, only the buckets of the new table are looked at.
+    *
+    * @param sampleSize The largest number of buckets to look at.
+    * @return a snapshot of the statistics.
+    */
+    public HashtableStats getStats(int sampleSize) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Illegal sample size: " + sampleSize);
+        }
+
+        int[] histogram = new int[HashtableStats.HISTOGRAM_SIZE];
+        int step = Math.max(1, capacity / sampleSize);
+        int sampled = 0;
+        int longest = 0;
+        int treeBins = 0;
+        int length;
+        Node<K, V> head;
+
+        for (int i = 0; i < capacity; i += step) {
+            head = buckets.get(i);
+
+            // Trees know their size, chains have to be walked
+            if (head instanceof TreeBin) {
+                length = ((TreeBin<K, V>) head).count;
+                treeBins++;
+            }
+            else {
+                length = 0;
+                for (Node<K, V> curr = head; curr != null; curr = curr.getNext()) {
+                    length++;
+                }
+            }
+
+            histogram[Math.min(length, HashtableStats.HISTOGRAM_SIZE - 1)]++;
+            longest = Math.max(longest, length);
+            sampled++;
+        }
+
+        return new HashtableStats(size, capacity, sampled, histogram, longest,
+            treeBins, addCount, collisionCount, getCount, probeCount,
+            resizeCount, movedBuckets, oldBuckets != null);
+    }
+
+    /**
+    * Print the contents of every bucket. While a resize is in progress, the
+    * buckets of the old table that have not been moved yet are printed too.
+    */
     public void print() {
+        print("Bucket", buckets, capacity);
+
+        if (oldBuckets != null) {
+            print("Old bucket", oldBuckets, oldCapacity);
+        }
+    }
+
+    /**
+    * Helper function for print.
+    *
+    * @param label The label to print before each bucket index.
+    * @param table The buckets to print.
+    * @param length The number of buckets in the table.
+    */
+    private void print(String label, ArrayList<Node<K, V>> table, int length) {
         Node<K, V> curr;
 
-        for (int i = 0; i < capacity; i++) {
-            curr = buckets.get(i);
+        for (int i = 0; i < length; i++) {
+            curr = first(table.get(i));
 
-            System.out.print("Bucket " + i + ": ");
+            System.out.print(label + " " + i + ": ");
             while (curr != null) {
                 System.out.print(curr.getValue());
                 curr = curr.getNext();
@@ -241,7 +992,8 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
     *  Node class for the singly linked list in each bucket. Each node holds
     * a key and a value.
     */
-    class Node<K, V> {
+    class Node<K, V> implements Map.Entry<K, V> {
+        int hash;
         private K key;
         private V value;
         Node<K, V> next;
@@ -250,12 +1002,14 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
         * Constructor function for a node. A key and value must be specified
         * for a node.
         *
+        * @param hash The hash code of the key.
         * @param key 
         * @parma value
         */
-        public Node(K key, V value) {
+        public Node(int hash, K key, V value) {
 
-            // Initialize key, value, and next fields
+            // Initialize hash, key, value, and next fields
+            this.hash = hash;
             this.key = key;
             this.value = value;
             next = null;
@@ -283,9 +1037,33 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
         * Change the value that the node holds.
         *
         * @param value What you want the value to be.
+        * @return the old value.
         */
-        public void setValue(V value) {
+        public V setValue(V value) {
+            V old = this.value;
             this.value = value;
+            return old;
+        }
+
+        /**
+        * Entries are equal if their keys and values are equal, as required of
+        * a Map.Entry.
+        */
+        public boolean equals(Object other) {
+            if (!(other instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+            return Objects.equals(key, entry.getKey())
+                && Objects.equals(value, entry.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
         }
 
         /**
@@ -307,11 +1085,428 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
         }
     }
 
+    /**
+    * Spliterator over a range of buckets. Buckets are numbered with those of
+    * the current table first, followed by those of the old table while a
+    * resize is in progress. Splitting hands the lower half of the remaining
+    * buckets to a new spliterator.
+    */
+    class EntrySpliterator implements Spliterator<Map.Entry<K, V>> {
+        private final ArrayList<Node<K, V>> table;
+        private final ArrayList<Node<K, V>> oldTable;
+        private final int length;
+        private int index;
+        private int fence;
+
+        // Next node to visit in the current bucket
+        private Node<K, V> next;
+
+        public EntrySpliterator(int index, int fence) {
+            this.table = buckets;
+            this.oldTable = oldBuckets;
+            this.length = capacity;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        /**
+        * Get the first node of a bucket by its number.
+        */
+        private Node<K, V> bucket(int i) {
+            return first(i < length ? table.get(i) : oldTable.get(i - length));
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+            while (next == null) {
+                if (index >= fence) {
+                    return false;
+                }
+                next = bucket(index++);
+            }
+
+            Node<K, V> curr = next;
+            next = curr.getNext();
+            action.accept(curr);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action) {
+            Node<K, V> curr = next;
+
+            next = null;
+            while (true) {
+                for (; curr != null; curr = curr.getNext()) {
+                    action.accept(curr);
+                }
+                if (index >= fence) {
+                    return;
+                }
+                curr = bucket(index++);
+            }
+        }
+
+        public Spliterator<Map.Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+
+            // Too few buckets left to split
+            if (mid <= index) {
+                return null;
+            }
+
+            EntrySpliterator prefix = new EntrySpliterator(index, mid);
+            index = mid;
+
+            // The rest of a partly visited bucket stays with this half
+            return prefix;
+        }
+
+        public long estimateSize() {
+            int total = length + (oldTable == null ? 0 : oldTable.size());
+            return (long) size * (fence - index) / Math.max(1, total)
+                + (next == null ? 0 : 1);
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+    * Compare two keys with compareTo, if they are of the same class and that
+    * class is Comparable. Used to order tree nodes whose hash codes are equal.
+    *
+    * @return the result of compareTo, or 0 if the keys cannot be compared.
+    */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareComparables(Object a, Object b) {
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return 0;
+    }
+
+    /**
+    * Break a tie between two keys that have the same hash code and cannot be
+    * compared otherwise. Never returns 0, so every insert picks a side.
+    *
+    * @return -1 or 1.
+    */
+    private static int tieBreakOrder(Object a, Object b) {
+        int order = a.getClass().getName().compareTo(b.getClass().getName());
+        if (order == 0) {
+            order = System.identityHashCode(a) <= System.identityHashCode(b) ? -1 : 1;
+        }
+        return order;
+    }
+
+    /**
+    * Head of a bucket that has been turned into a tree. It holds no entry of
+    * its own. Its root is the root of an AVL tree of TreeNodes ordered by
+    * hash code, and its next node is the first of those TreeNodes in a doubly
+    * linked list, so the bucket can still be walked like a chain.
+    */
+    class TreeBin<K, V> extends Node<K, V> {
+        TreeNode<K, V> root;
+        int count;
+
+        public TreeBin() {
+            super(0, null, null);
+        }
+
+        /**
+        * Find the node holding the key.
+        *
+        * @param hash The hash code of the key.
+        * @param key The key to look for.
+        * @return the node, or null if not found.
+        */
+        public TreeNode<K, V> find(int hash, Object key) {
+            return find(root, hash, key);
+        }
+
+        /**
+        * Helper function for find. Nodes with equal hash codes are ordered by
+        * compareTo when possible. If that does not decide, the key could be
+        * in either subtree, so the right one is searched recursively.
+        */
+        private TreeNode<K, V> find(TreeNode<K, V> curr, int hash, Object key) {
+            TreeNode<K, V> found;
+            int dir;
+
+            while (curr != null) {
+                if (hash < curr.hash) {
+                    curr = curr.left;
+                }
+                else if (hash > curr.hash) {
+                    curr = curr.right;
+                }
+                else if (keyEquals(curr.getKey(), key)) {
+                    return curr;
+                }
+                else if (curr.left == null) {
+                    curr = curr.right;
+                }
+                else if (curr.right == null) {
+                    curr = curr.left;
+                }
+                else if ((dir = compareComparables(key, curr.getKey())) != 0) {
+                    curr = dir < 0 ? curr.left : curr.right;
+                }
+                else if ((found = find(curr.right, hash, key)) != null) {
+                    return found;
+                }
+                else {
+                    curr = curr.left;
+                }
+            }
+            return null;
+        }
+
+        /**
+        * Order two nodes by hash code, then compareTo, then a tie breaker.
+        *
+        * @return negative if a goes to the left of b, positive otherwise.
+        */
+        private int compare(TreeNode<K, V> a, TreeNode<K, V> b) {
+            int dir;
+
+            if (a.hash != b.hash) {
+                return a.hash < b.hash ? -1 : 1;
+            }
+            if ((dir = compareComparables(a.getKey(), b.getKey())) != 0) {
+                return dir;
+            }
+            return tieBreakOrder(a.getKey(), b.getKey());
+        }
+
+        /**
+        * Insert a node whose key is not in the tree yet.
+        *
+        * @param node The node to insert.
+        */
+        public void insert(TreeNode<K, V> node) {
+            TreeNode<K, V> curr = root;
+            TreeNode<K, V> child;
+
+            // Add to the front of the list of nodes
+            node.setNext(getNext());
+            if (getNext() != null) {
+                ((TreeNode<K, V>) getNext()).prev = node;
+            }
+            setNext(node);
+            count++;
+
+            // First node becomes the root
+            if (curr == null) {
+                root = node;
+                return;
+            }
+
+            // Walk down to an empty spot and hang the node there
+            while (true) {
+                if (compare(node, curr) < 0) {
+                    child = curr.left;
+                    if (child == null) {
+                        curr.left = node;
+                        break;
+                    }
+                }
+                else {
+                    child = curr.right;
+                    if (child == null) {
+                        curr.right = node;
+                        break;
+                    }
+                }
+                curr = child;
+            }
+            node.parent = curr;
+            rebalance(curr);
+        }
+
+        /**
+        * Delete a node from the tree and from the list of nodes. A node with
+        * two children takes over the entry of its successor, and the
+        * successor's node is removed instead.
+        *
+        * @param node The node to delete.
+        */
+        public void delete(TreeNode<K, V> node) {
+            TreeNode<K, V> victim = node;
+            TreeNode<K, V> child;
+            TreeNode<K, V> parent;
+
+            // Node has two children, copy the successor's entry into it
+            if (node.left != null && node.right != null) {
+                victim = node.right;
+                while (victim.left != null) {
+                    victim = victim.left;
+                }
+                copyEntry(node, victim);
+            }
+
+            // Unlink the victim from the list of nodes
+            TreeNode<K, V> next = (TreeNode<K, V>) victim.getNext();
+            if (victim.prev == null) {
+                setNext(next);
+            }
+            else {
+                victim.prev.setNext(next);
+            }
+            if (next != null) {
+                next.prev = victim.prev;
+            }
+            count--;
+
+            // Victim has at most one child, which takes its place
+            child = victim.left != null ? victim.left : victim.right;
+            parent = victim.parent;
+            if (child != null) {
+                child.parent = parent;
+            }
+            if (parent == null) {
+                root = child;
+            }
+            else if (parent.left == victim) {
+                parent.left = child;
+            }
+            else {
+                parent.right = child;
+            }
+            rebalance(parent);
+        }
+
+        /**
+        * Copy the hash code, key and value of one node into another.
+        */
+        private void copyEntry(Node<K, V> to, Node<K, V> from) {
+            to.hash = from.hash;
+            to.key = from.key;
+            to.value = from.value;
+        }
+
+        /**
+        * Walk from the given node up to the root, fixing heights and rotating
+        * wherever the two subtrees differ in height by more than one.
+        *
+        * @param curr The lowest node whose subtree changed.
+        */
+        private void rebalance(TreeNode<K, V> curr) {
+            int balance;
+
+            while (curr != null) {
+                updateHeight(curr);
+                balance = height(curr.left) - height(curr.right);
+
+                // Left subtree is too tall
+                if (balance > 1) {
+                    if (height(curr.left.left) < height(curr.left.right)) {
+                        rotateLeft(curr.left);
+                    }
+                    curr = rotateRight(curr);
+                }
+
+                // Right subtree is too tall
+                else if (balance < -1) {
+                    if (height(curr.right.right) < height(curr.right.left)) {
+                        rotateRight(curr.right);
+                    }
+                    curr = rotateLeft(curr);
+                }
+                curr = curr.parent;
+            }
+        }
+
+        private int height(TreeNode<K, V> node) {
+            return node == null ? 0 : node.height;
+        }
+
+        private void updateHeight(TreeNode<K, V> node) {
+            node.height = 1 + Math.max(height(node.left), height(node.right));
+        }
+
+        /**
+        * Replace a node with its right child, which becomes its parent.
+        *
+        * @return the node that took the old node's place.
+        */
+        private TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+            TreeNode<K, V> pivot = node.right;
+
+            node.right = pivot.left;
+            if (pivot.left != null) {
+                pivot.left.parent = node;
+            }
+            replaceChild(node, pivot);
+            pivot.left = node;
+            node.parent = pivot;
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+
+        /**
+        * Replace a node with its left child, which becomes its parent.
+        *
+        * @return the node that took the old node's place.
+        */
+        private TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+            TreeNode<K, V> pivot = node.left;
+
+            node.left = pivot.right;
+            if (pivot.right != null) {
+                pivot.right.parent = node;
+            }
+            replaceChild(node, pivot);
+            pivot.right = node;
+            node.parent = pivot;
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+
+        /**
+        * Point the parent of a node (or the root) at a replacement node.
+        */
+        private void replaceChild(TreeNode<K, V> node, TreeNode<K, V> replacement) {
+            TreeNode<K, V> parent = node.parent;
+
+            replacement.parent = parent;
+            if (parent == null) {
+                root = replacement;
+            }
+            else if (parent.left == node) {
+                parent.left = replacement;
+            }
+            else {
+                parent.right = replacement;
+            }
+        }
+    }
+
+    /**
+    * Node of a bucket that has been turned into a tree. It keeps its next
+    * pointer, plus a previous pointer so it can be unlinked from the list of
+    * nodes in O(1).
+    */
+    class TreeNode<K, V> extends Node<K, V> {
+        TreeNode<K, V> parent;
+        TreeNode<K, V> left;
+        TreeNode<K, V> right;
+        TreeNode<K, V> prev;
+        int height;
+
+        public TreeNode(int hash, K key, V value) {
+            super(hash, key, value);
+            height = 1;
+        }
+    }
+
     /**
     * Performing basic hashtable operations such as insert, lookup, and delete.
     */
     public static void main(String[] args) {
-        int capacity = 11;
+        int capacity = 16;
 
         System.out.println("Instantiating a new hashtable.");
         Hashtable<Integer, String> ht = new Hashtable<Integer, String>(capacity);
@@ -326,5 +1521,19 @@ public class Hashtable<K, V> implements HashtableInterface<K, V> {
         System.out.println("Deleting element with key 2 :).");
         ht.remove(new Integer(2));
         System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Inserting 100 elements, growing the table.");
+        for (int i = 0; i < 100; i++) {
+            ht.add(i, "Value " + i);
+        }
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 42: " + ht.get(42));
+        System.out.println(ht.getStats());
+
+        System.out.println("Using byte arrays as keys, compared by content.");
+        Hashtable<byte[], String> bytes = new Hashtable<byte[], String>(
+            capacity, 0.75, new ByteArrayHashStrategy());
+        bytes.add("key".getBytes(), "Found");
+        System.out.println("Value for \"key\": " + bytes.get("key".getBytes()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+import java.util.Random;
+
+/**
+* Times lookups on the hash tables. Batched lookups look up the same random
+* keys once with a get per key and once with getAll on batches of 256, on a
+* table far larger than the processor caches, where most lookups miss the
+* cache. Missing keys show how quickly each table gives up on a key it does
+* not hold. Each time is the fastest of a few rounds, so the first, unwarmed
+* round does not count.
+*
+* The off-heap churn replaces and removes values of random sizes over and
+* over. The live data stays the same size, so the arena must stop growing
+* once freed blocks are being reused; the benchmark fails if it keeps
+* growing.
+*/
+public class HashtableBenchmark {
+    private static final int KEYS = 4000000;
+    private static final int BATCHES = 20000;
+    private static final int BATCH_SIZE = 256;
+    private static final int ROUNDS = 5;
+    private static final int PRESENT_KEYS = 1000000;
+    private static final int MISSING_KEYS = 10000000;
+    private static final int CHURN_ROUNDS = 4;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+    * Look up every batch of keys with one get per key, or with getAll, and
+    * print the average time per lookup of the fastest round.
+    *
+    * @param name The name of the table.
+    * @param table The table, holding every key of the batches.
+    * @param batches The keys to look up.
+    */
+    private static void runLookups(String name, HashtableInterface<Integer, Integer> table,
+            Integer[][] batches) {
+        Integer[] out = new Integer[BATCH_SIZE];
+        long bestGet = Long.MAX_VALUE;
+        long bestGetAll = Long.MAX_VALUE;
+        long start;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            for (Integer[] batch : batches) {
+                for (int i = 0; i < batch.length; i++) {
+                    out[i] = table.get(batch[i]);
+                }
+            }
+            bestGet = Math.min(bestGet, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Integer[] batch : batches) {
+                table.getAll(batch, out);
+            }
+            bestGetAll = Math.min(bestGetAll, System.nanoTime() - start);
+        }
+
+        long lookups = (long) BATCHES * BATCH_SIZE;
+        System.out.printf("%-16s get %5d ns/op   getAll %5d ns/op%n",
+            name, bestGet / lookups, bestGetAll / lookups);
+    }
+
+    /**
+    * Look up keys that are not in the table and print the average time per
+    * lookup of the fastest round.
+    *
+    * @param name The name of the table.
+    * @param table The table, holding the keys 0 to PRESENT_KEYS - 1.
+    */
+    private static void runMisses(String name, HashtableInterface<Integer, Integer> table) {
+        long best = Long.MAX_VALUE;
+        long start;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            for (int i = PRESENT_KEYS; i < PRESENT_KEYS + MISSING_KEYS; i++) {
+                if (table.get(i) != null) {
+                    throw new IllegalStateException(name + " found missing key " + i);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-16s get %5d ns/op%n", name, best / MISSING_KEYS);
+    }
+
+    /**
+    * Replace random keys' values with values of random sizes, removing one
+    * key in eight instead, and print the arena size and the time per update
+    * after each round.
+    *
+    * @param keys The number of keys.
+    * @param minValue The smallest value size.
+    * @param maxValue The largest value size.
+    * @param updates The number of updates per round.
+    * @throws IllegalStateException if the arena keeps growing.
+    */
+    private static void runChurn(int keys, int minValue, int maxValue, int updates) {
+        OffHeapHashtable table = new OffHeapHashtable(16, CHUNK_SIZE);
+        Random random = new Random(3);
+        byte[][] names = new byte[keys][];
+        long firstBytes = 0;
+        long start;
+
+        for (int i = 0; i < keys; i++) {
+            names[i] = ("key" + i).getBytes();
+            table.add(names[i], new byte[minValue + random.nextInt(maxValue - minValue + 1)]);
+        }
+
+        System.out.println("Off-heap churn of " + keys + " keys with values of "
+            + minValue + " to " + maxValue + " bytes.");
+        for (int round = 0; round < CHURN_ROUNDS; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                byte[] key = names[random.nextInt(keys)];
+                if (random.nextInt(8) == 0) {
+                    table.remove(key);
+                }
+                else {
+                    table.add(key, new byte[minValue + random.nextInt(maxValue - minValue + 1)]);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("round %d   arena %5d KB   update %6d ns/op%n",
+                round, table.getOffHeapBytes() >> 10, elapsed / updates);
+            if (round == 0) {
+                firstBytes = table.getOffHeapBytes();
+            }
+        }
+
+        if (table.getOffHeapBytes() > 2 * firstBytes) {
+            throw new IllegalStateException("Arena grew from " + firstBytes + " to "
+                + table.getOffHeapBytes() + " bytes with the same live data");
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Integer[] keys = new Integer[KEYS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt();
+        }
+        Integer[][] batches = new Integer[BATCHES][BATCH_SIZE];
+        for (Integer[] batch : batches) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = keys[random.nextInt(keys.length)];
+            }
+        }
+
+        System.out.println("Random lookups among " + KEYS + " keys, in batches of "
+            + BATCH_SIZE + ".");
+        HashtableInterface<Integer, Integer> table = new Hashtable<Integer, Integer>(16);
+        table.addAll(keys, keys);
+        runLookups("Hashtable", table, batches);
+
+        table = new SwissHashtable<Integer, Integer>(16);
+        table.addAll(keys, keys);
+        runLookups("SwissHashtable", table, batches);
+
+        System.out.println("Lookups of missing keys in a table of " + PRESENT_KEYS + " keys.");
+        table = new Hashtable<Integer, Integer>(16);
+        for (int i = 0; i < PRESENT_KEYS; i++) {
+            table.add(i, i);
+        }
+        runMisses("Hashtable", table);
+
+        table = new SwissHashtable<Integer, Integer>(16);
+        for (int i = 0; i < PRESENT_KEYS; i++) {
+            table.add(i, i);
+        }
+        runMisses("SwissHashtable", table);
+
+        runChurn(2000, 1, 8000, 500000);
+        runChurn(500, 4000, 13000, 100000);
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
 * A Hash Table is a data structure that can map keys to value. It's strength
 * is in fetching/adding/removing elements in constant time (on average). 
@@ -30,4 +33,124 @@ public interface HashtableInterface<K, V> {
 	void add(K key, V value);
 	V remove(K key);
 	boolean isEmpty();
+
+	/**
+	* Look up a batch of keys at once. Implementations may hash the whole
+	* batch first and then probe, so the memory accesses of different keys
+	* overlap instead of each lookup waiting on the one before.
+	*
+	* @param keys The keys to look up.
+	* @param out Receives the value of keys[i] (or null) at index i; must be
+	* at least as long as keys.
+	*/
+	default void getAll(K[] keys, V[] out) {
+		for (int i = 0; i < keys.length; i++) {
+			out[i] = get(keys[i]);
+		}
+	}
+
+	/**
+	* Add a batch of key, value pairs, in order, so a key that appears twice
+	* ends up with its last value.
+	*
+	* @param keys The keys to add.
+	* @param values The value for keys[i] at index i; must be at least as long
+	* as keys.
+	*/
+	default void addAll(K[] keys, V[] values) {
+		for (int i = 0; i < keys.length; i++) {
+			add(keys[i], values[i]);
+		}
+	}
+
+	// The operations below follow java.util.Map: a null value means the key
+	// is missing, and a function returning null removes the key. The default
+	// versions are built from get, add and remove, so they hash the key and
+	// search for it more than once. Implementations override them to do a
+	// single lookup, and thread-safe ones to make each call atomic for its
+	// key. The functions must not change the table themselves.
+
+	/**
+	* Return the value for the key, or the given default if it is missing.
+	*/
+	default V getOrDefault(K key, V defaultValue) {
+		V value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	* Add the pair only if the key is missing.
+	*
+	* @param key The key.
+	* @param value The value to add if the key is missing.
+	* @return the value already there, or null if the pair was added.
+	*/
+	default V putIfAbsent(K key, V value) {
+		V old = get(key);
+		if (old == null) {
+			add(key, value);
+		}
+		return old;
+	}
+
+	/**
+	* If the key is missing, compute its value from the key and add it,
+	* unless the function returns null.
+	*
+	* @param key The key.
+	* @param mappingFunction Computes the value, or returns null to add nothing.
+	* @return the current (existing or computed) value, or null.
+	*/
+	default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		V value = get(key);
+		if (value == null) {
+			value = mappingFunction.apply(key);
+			if (value != null) {
+				add(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	* Compute a new value from the key and its current value (null if
+	* missing). A null result removes the key.
+	*
+	* @param key The key.
+	* @param remappingFunction Computes the new value from the key and the
+	* current value.
+	* @return the new value, or null if the key is now missing.
+	*/
+	default V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		V old = get(key);
+		V value = remappingFunction.apply(key, old);
+		if (value != null) {
+			add(key, value);
+		}
+		else if (old != null) {
+			remove(key);
+		}
+		return value;
+	}
+
+	/**
+	* Add the value if the key is missing, otherwise combine the current
+	* value with it. A null result removes the key.
+	*
+	* @param key The key.
+	* @param value The value to add or combine.
+	* @param remappingFunction Combines the current value with the new one.
+	* @return the new value, or null if the key is now missing.
+	*/
+	default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		V old = get(key);
+		V merged = old == null ? value : remappingFunction.apply(old, value);
+		if (merged != null) {
+			add(key, merged);
+		}
+		else {
+			remove(key);
+		}
+		return merged;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+import java.util.Arrays;
+
+/**
+* Snapshot of the internals of a Hashtable, from Hashtable.getStats. Useful
+* for spotting keys with a bad hashCode (long chains, many collisions per
+* add, many probes per get) and tables that are too small (a high load
+* factor, frequent resizes).
+*/
+public class HashtableStats {
+
+    // Chain lengths of this or more share the last histogram bucket
+    static final int HISTOGRAM_SIZE = 16;
+
+    private final int size;
+    private final int capacity;
+    private final int sampledBuckets;
+    private final int[] chainLengths;
+    private final int longestChain;
+    private final int treeBins;
+    private final long addCount;
+    private final long collisionCount;
+    private final long getCount;
+    private final long probeCount;
+    private final long resizeCount;
+    private final long movedBuckets;
+    private final boolean resizing;
+
+    HashtableStats(int size, int capacity, int sampledBuckets, int[] chainLengths,
+            int longestChain, int treeBins, long addCount, long collisionCount,
+            long getCount, long probeCount, long resizeCount, long movedBuckets,
+            boolean resizing) {
+        this.size = size;
+        this.capacity = capacity;
+        this.sampledBuckets = sampledBuckets;
+        this.chainLengths = chainLengths;
+        this.longestChain = longestChain;
+        this.treeBins = treeBins;
+        this.addCount = addCount;
+        this.collisionCount = collisionCount;
+        this.getCount = getCount;
+        this.probeCount = probeCount;
+        this.resizeCount = resizeCount;
+        this.movedBuckets = movedBuckets;
+        this.resizing = resizing;
+    }
+
+    /**
+    * @return the number of entries in the table.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * @return the number of buckets in the table.
+    */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+    * @return the number of entries per bucket.
+    */
+    public double getLoadFactor() {
+        return (double) size / capacity;
+    }
+
+    /**
+    * @return the number of buckets the histogram was built from.
+    */
+    public int getSampledBuckets() {
+        return sampledBuckets;
+    }
+
+    /**
+    * Get the chain length histogram. Element i is the number of sampled
+    * buckets holding i entries; the last element counts every bucket holding
+    * that many entries or more.
+    *
+    * @return a copy of the histogram.
+    */
+    public int[] getChainLengthHistogram() {
+        return chainLengths.clone();
+    }
+
+    /**
+    * @return the number of entries in the fullest sampled bucket.
+    */
+    public int getLongestChain() {
+        return longestChain;
+    }
+
+    /**
+    * @return the number of sampled buckets that have been turned into trees.
+    */
+    public int getTreeBinCount() {
+        return treeBins;
+    }
+
+    /**
+    * @return the number of new keys added.
+    */
+    public long getAddCount() {
+        return addCount;
+    }
+
+    /**
+    * @return the number of new keys that went into a bucket that was not
+    * empty.
+    */
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+
+    /**
+    * @return the fraction of adds that collided.
+    */
+    public double getCollisionsPerAdd() {
+        return addCount == 0 ? 0 : (double) collisionCount / addCount;
+    }
+
+    /**
+    * @return the number of calls to get.
+    */
+    public long getGetCount() {
+        return getCount;
+    }
+
+    /**
+    * @return the average number of nodes looked at per get. For buckets
+    * that are trees, the tree's height is counted.
+    */
+    public double getAverageProbes() {
+        return getCount == 0 ? 0 : (double) probeCount / getCount;
+    }
+
+    /**
+    * @return the number of times the table has doubled.
+    */
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    /**
+    * @return the number of non-empty buckets moved to a larger table so
+    * far, either while resizing or a few at a time during later operations.
+    * Each move rehashes every node of the bucket.
+    */
+    public long getMovedBuckets() {
+        return movedBuckets;
+    }
+
+    /**
+    * @return true if buckets are still being moved to a larger table.
+    */
+    public boolean isResizing() {
+        return resizing;
+    }
+
+    public String toString() {
+        return "HashtableStats{size=" + size
+            + ", capacity=" + capacity
+            + ", loadFactor=" + String.format("%.3f", getLoadFactor())
+            + ", longestChain=" + longestChain
+            + ", treeBins=" + treeBins
+            + ", chainLengths=" + Arrays.toString(chainLengths)
+            + ", collisionsPerAdd=" + String.format("%.3f", getCollisionsPerAdd())
+            + ", averageProbes=" + String.format("%.3f", getAverageProbes())
+            + ", resizes=" + resizeCount
+            + ", movedBuckets=" + movedBuckets
+            + (resizing ? ", resizing" : "")
+            + "}";
+    }
+}
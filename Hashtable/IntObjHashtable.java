@@ -0,0 +1,256 @@
+/**
+* Hash table specialized for int keys. Mirrors HashtableInterface's get, add,
+* remove and getSize, but stores keys in a raw int[] so they are never boxed
+* and no hashCode or equals call is needed. Values are kept in a parallel
+* Object[] array. Collisions are resolved with linear probing, and removal
+* shifts later entries back instead of leaving tombstones.
+*
+* Key 0 marks an empty slot, so an entry with key 0 is kept in a separate
+* field outside of the arrays.
+*/
+public class IntObjHashtable<V> {
+    private static final double DEFAULT_LOAD_FACTOR = 0.5;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private double loadFactor;
+    private int threshold;
+
+    // The entry for key 0, which cannot be stored in the arrays
+    private boolean hasFreeKey;
+    private V freeValue;
+
+    /**
+    * Constructor method for an IntObjHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    */
+    public IntObjHashtable(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+    * Constructor method for an IntObjHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    */
+    public IntObjHashtable(int capacity, double loadFactor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.loadFactor = loadFactor;
+        allocate(capacity >= MAXIMUM_CAPACITY
+            ? MAXIMUM_CAPACITY : Math.max(2, Integer.highestOneBit(capacity - 1) << 1));
+    }
+
+    /**
+    * Allocate empty key and value arrays of the given size.
+    *
+    * @param capacity The number of slots, a power of two.
+    */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) Math.min(capacity * loadFactor, capacity - 1);
+    }
+
+    /**
+    * Map the key to its home slot, mixing all of its bits first.
+    *
+    * @param key The key to hash.
+    * @return the index of the key's home slot.
+    */
+    private int hash(int key) {
+        int h = key * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+    * Find the slot holding the key.
+    *
+    * @param key The key to look for, not 0.
+    * @return the index of the slot, or -1 if the key is not in the table.
+    */
+    private int find(int key) {
+        int index = hash(key);
+        int curr;
+
+        while ((curr = keys[index]) != FREE_KEY) {
+            if (curr == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Return the value associated with the specified key. O(1) on average.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return freeValue;
+        }
+
+        int index = find(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. O(1) on average.
+    *
+    * @param key The key.
+    * @param value The value to associate with the key.
+    */
+    public void add(int key, V value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+
+        int index = hash(key);
+        int curr;
+
+        // Look for the key, stopping at the first empty slot
+        while ((curr = keys[index]) != FREE_KEY) {
+            if (curr == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // Claim the empty slot
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if (size > threshold) {
+            resize();
+        }
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. O(1) on average.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        V removed;
+
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return null;
+            }
+            removed = freeValue;
+            hasFreeKey = false;
+            freeValue = null;
+            size--;
+            return removed;
+        }
+
+        int hole = find(key);
+        if (hole < 0) {
+            return null;
+        }
+        removed = (V) values[hole];
+        size--;
+
+        // Shift later entries of the run back if the hole is on their path
+        int index = hole;
+        int curr;
+        while ((curr = keys[index = (index + 1) & mask]) != FREE_KEY) {
+            if (((index - hash(curr)) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = curr;
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        keys[hole] = FREE_KEY;
+        values[hole] = null;
+        return removed;
+    }
+
+    /**
+    * Double the number of slots and reinsert every entry.
+    */
+    private void resize() {
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Hash table is full");
+        }
+
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int index;
+
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                index = hash(oldKeys[i]);
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new int to object hashtable.");
+        IntObjHashtable<String> ht = new IntObjHashtable<String>(8);
+
+        System.out.println("Inserting 3 elements.");
+        ht.add(0, "Zero");
+        ht.add(1, "Hello");
+        ht.add(2, "World");
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Deleting element with key 2 :).");
+        ht.remove(2);
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 0: " + ht.get(0));
+    }
+}
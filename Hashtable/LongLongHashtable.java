@@ -0,0 +1,267 @@
+/**
+* Hash table specialized for long keys and long values. Mirrors
+* HashtableInterface's get, add, remove and getSize over two raw long[]
+* arrays, so nothing is boxed and nothing is allocated outside of a resize.
+* Collisions are resolved with linear probing, and removal shifts later
+* entries back instead of leaving tombstones.
+*
+* Since a long cannot be null, get and remove return a configurable "no
+* entry" value for missing keys; use containsKey to tell the two apart. Key 0
+* marks an empty slot, so an entry with key 0 is kept in separate fields.
+*/
+public class LongLongHashtable {
+    private static final double DEFAULT_LOAD_FACTOR = 0.5;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final long FREE_KEY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+    private double loadFactor;
+    private int threshold;
+    private long noEntryValue;
+
+    // The entry for key 0, which cannot be stored in the arrays
+    private boolean hasFreeKey;
+    private long freeValue;
+
+    /**
+    * Constructor method for a LongLongHashtable that returns 0 for missing
+    * keys.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    */
+    public LongLongHashtable(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR, 0L);
+    }
+
+    /**
+    * Constructor method for a LongLongHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    * @param noEntryValue The value returned by get and remove for missing keys.
+    */
+    public LongLongHashtable(int capacity, double loadFactor, long noEntryValue) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        allocate(capacity >= MAXIMUM_CAPACITY
+            ? MAXIMUM_CAPACITY : Math.max(2, Integer.highestOneBit(capacity - 1) << 1));
+    }
+
+    /**
+    * Allocate empty key and value arrays of the given size.
+    *
+    * @param capacity The number of slots, a power of two.
+    */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) Math.min(capacity * loadFactor, capacity - 1);
+    }
+
+    /**
+    * Map the key to its home slot, mixing all 64 bits into the low bits.
+    *
+    * @param key The key to hash.
+    * @return the index of the key's home slot.
+    */
+    private int hash(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+    * Find the slot holding the key.
+    *
+    * @param key The key to look for, not 0.
+    * @return the index of the slot, or -1 if the key is not in the table.
+    */
+    private int find(long key) {
+        int index = hash(key);
+        long curr;
+
+        while ((curr = keys[index]) != FREE_KEY) {
+            if (curr == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Check if the hash table holds the key.
+    *
+    * @param key The key to look for.
+    * @return true if the key is present, false otherwise.
+    */
+    public boolean containsKey(long key) {
+        return key == FREE_KEY ? hasFreeKey : find(key) >= 0;
+    }
+
+    /**
+    * Return the value associated with the specified key. O(1) on average.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or the no entry value.
+    */
+    public long get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeValue : noEntryValue;
+        }
+
+        int index = find(key);
+        return index < 0 ? noEntryValue : values[index];
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. O(1) on average.
+    *
+    * @param key The key.
+    * @param value The value to associate with the key.
+    */
+    public void add(long key, long value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+
+        int index = hash(key);
+        long curr;
+
+        // Look for the key, stopping at the first empty slot
+        while ((curr = keys[index]) != FREE_KEY) {
+            if (curr == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // Claim the empty slot
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if (size > threshold) {
+            resize();
+        }
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. O(1) on average.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or the no entry value.
+    */
+    public long remove(long key) {
+        long removed;
+
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return noEntryValue;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeValue;
+        }
+
+        int hole = find(key);
+        if (hole < 0) {
+            return noEntryValue;
+        }
+        removed = values[hole];
+        size--;
+
+        // Shift later entries of the run back if the hole is on their path
+        int index = hole;
+        long curr;
+        while ((curr = keys[index = (index + 1) & mask]) != FREE_KEY) {
+            if (((index - hash(curr)) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = curr;
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        keys[hole] = FREE_KEY;
+        return removed;
+    }
+
+    /**
+    * Double the number of slots and reinsert every entry.
+    */
+    private void resize() {
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Hash table is full");
+        }
+
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int index;
+
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                index = hash(oldKeys[i]);
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new long to long hashtable.");
+        LongLongHashtable ht = new LongLongHashtable(8, 0.5, -1L);
+
+        System.out.println("Inserting 3 elements.");
+        ht.add(0L, 100L);
+        ht.add(1L, 101L);
+        ht.add(1L << 40, 102L);
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Deleting element with key 1 :).");
+        ht.remove(1L);
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 1: " + ht.get(1L));
+        System.out.println("Value for key 2^40: " + ht.get(1L << 40));
+    }
+}
@@ -0,0 +1,47 @@
+/**
+* Least recently used eviction. Entries are kept in a doubly linked list in
+* order of their last access: a hit moves the entry to the front, and the
+* victim is the entry at the back.
+*/
+public class LruPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    // Sentinel node, head.next is the most recently used entry
+    private final CacheEntry<K, V> head;
+
+    public LruPolicy() {
+        head = new CacheEntry<K, V>(null, null, 0);
+        head.next = head;
+        head.prev = head;
+    }
+
+    public void onInsert(CacheEntry<K, V> entry) {
+        linkFirst(entry);
+    }
+
+    public void onAccess(CacheEntry<K, V> entry) {
+        unlink(entry);
+        linkFirst(entry);
+    }
+
+    public void onRemove(CacheEntry<K, V> entry) {
+        unlink(entry);
+    }
+
+    public CacheEntry<K, V> victim() {
+        return head.prev;
+    }
+
+    private void linkFirst(CacheEntry<K, V> entry) {
+        entry.prev = head;
+        entry.next = head.next;
+        head.next.prev = entry;
+        head.next = entry;
+    }
+
+    private void unlink(CacheEntry<K, V> entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+    }
+}
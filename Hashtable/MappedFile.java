@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+* A file mapped into memory in regions of 1 GB, since a single
+* MappedByteBuffer cannot be larger than 2 GB. Reads and writes take a long
+* offset into the file. A single read or write must not cross a region
+* boundary, so callers keep their fields aligned and records within a region.
+*/
+class MappedFile {
+    static final int REGION_BITS = 30;
+    static final long REGION_SIZE = 1L << REGION_BITS;
+    private static final long REGION_MASK = REGION_SIZE - 1;
+
+    private final MappedByteBuffer[] regions;
+
+    /**
+    * Map the first length bytes of a file.
+    *
+    * @param channel The open file.
+    * @param mode READ_ONLY or READ_WRITE.
+    * @param length The number of bytes to map.
+    */
+    MappedFile(FileChannel channel, FileChannel.MapMode mode, long length)
+            throws IOException {
+        int count = (int) ((length + REGION_SIZE - 1) >>> REGION_BITS);
+
+        regions = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << REGION_BITS;
+            regions[i] = channel.map(mode, start, Math.min(REGION_SIZE, length - start));
+        }
+    }
+
+    long getLong(long offset) {
+        return regions[(int) (offset >>> REGION_BITS)].getLong((int) (offset & REGION_MASK));
+    }
+
+    int getInt(long offset) {
+        return regions[(int) (offset >>> REGION_BITS)].getInt((int) (offset & REGION_MASK));
+    }
+
+    byte get(long offset) {
+        return regions[(int) (offset >>> REGION_BITS)].get((int) (offset & REGION_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        regions[(int) (offset >>> REGION_BITS)].putLong((int) (offset & REGION_MASK), value);
+    }
+
+    void putInt(long offset, int value) {
+        regions[(int) (offset >>> REGION_BITS)].putInt((int) (offset & REGION_MASK), value);
+    }
+
+    /**
+    * Copy bytes starting at the given offset into an array.
+    */
+    void get(long offset, byte[] bytes) {
+        ByteBuffer view = regions[(int) (offset >>> REGION_BITS)].duplicate();
+        view.position((int) (offset & REGION_MASK));
+        view.get(bytes);
+    }
+
+    /**
+    * Write any changes made through the mapping back to the file.
+    */
+    void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+}
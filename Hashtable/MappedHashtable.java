@@ -0,0 +1,308 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+
+/**
+* Hash table served straight from a snapshot file written by SnapshotWriter
+* (see Hashtable.snapshot). Opening maps the file into memory and reads its
+* header, so it takes O(1) time no matter how many entries there are; the
+* operating system pages in the parts of the file that lookups touch.
+*
+* The snapshot itself is never modified. Adds and removes go to a small heap
+* overlay, which is checked before the file: it holds new values, and a
+* marker for keys removed from the snapshot. compact writes the merged
+* contents to a new snapshot file, after which the overlay can start empty
+* again.
+*/
+public class MappedHashtable<K, V> implements HashtableInterface<K, V>, Closeable {
+    private static final Object REMOVED = new Object();
+
+    private final FileChannel channel;
+    private final MappedFile file;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final ByteArrayHashStrategy strategy;
+    private final long baseCount;
+    private final long slotCount;
+    private final long mask;
+
+    // Changes made since the snapshot was written
+    private final Hashtable<K, Object> overlay;
+    private int size;
+
+    /**
+    * Map a snapshot file.
+    *
+    * @param path The snapshot file.
+    * @param keyCodec The codec the keys were written with.
+    * @param valueCodec The codec the values were written with.
+    */
+    public MappedHashtable(Path path, Codec<K> keyCodec, Codec<V> valueCodec)
+            throws IOException {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.overlay = new Hashtable<K, Object>(16);
+
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < SnapshotWriter.HEADER_SIZE) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            file = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+            if (file.getInt(0) != SnapshotWriter.MAGIC
+                    || file.getInt(4) != SnapshotWriter.VERSION) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        baseCount = file.getLong(8);
+        slotCount = file.getLong(16);
+        mask = slotCount - 1;
+        strategy = new ByteArrayHashStrategy(file.getInt(24));
+        size = (int) baseCount;
+    }
+
+    /**
+    * Get the size of the hash table, counting both the snapshot and the
+    * overlay.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Return the value associated with the specified key, from the overlay if
+    * it was changed since the snapshot, otherwise from the file.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Object changed = overlay.get(key);
+
+        if (changed == REMOVED) {
+            return null;
+        }
+        if (changed != null) {
+            return (V) changed;
+        }
+
+        long record = findRecord(keyCodec.encode(key));
+        return record < 0 ? null : readValue(record);
+    }
+
+    /**
+    * Adds a key, value pair to the overlay.
+    *
+    * @param key The key.
+    * @param value The value, must not be null.
+    */
+    public void add(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        if (!contains(key)) {
+            size++;
+        }
+        overlay.add(key, value);
+    }
+
+    /**
+    * Remove a key, value pair. A key that is in the snapshot is hidden by a
+    * marker in the overlay.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    public V remove(K key) {
+        V removed = get(key);
+
+        if (removed == null) {
+            return null;
+        }
+        if (findRecord(keyCodec.encode(key)) >= 0) {
+            overlay.add(key, REMOVED);
+        }
+        else {
+            overlay.remove(key);
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+    * Check if the key is in the table.
+    */
+    private boolean contains(K key) {
+        Object changed = overlay.get(key);
+
+        if (changed != null) {
+            return changed != REMOVED;
+        }
+        return findRecord(keyCodec.encode(key)) >= 0;
+    }
+
+    /**
+    * Write the current contents (the snapshot with the overlay applied) to a
+    * new snapshot file and map it.
+    *
+    * @param path Where to write the new snapshot. Must not be this table's
+    * own file.
+    * @return a table backed by the new snapshot, with an empty overlay.
+    */
+    public MappedHashtable<K, V> compact(Path path) throws IOException {
+        final SnapshotWriter writer = new SnapshotWriter(path, size);
+
+        try {
+
+            // Entries of the snapshot that were not changed
+            for (long slot = 0; slot < slotCount; slot++) {
+                long record = file.getLong(SnapshotWriter.HEADER_SIZE + slot * 8);
+                if (record != 0) {
+                    byte[] key = new byte[file.getInt(record + 4)];
+                    file.get(record + SnapshotWriter.RECORD_HEADER_SIZE, key);
+                    if (overlay.get(keyCodec.decode(key)) == null) {
+                        byte[] value = new byte[file.getInt(record + 8)];
+                        file.get(record + SnapshotWriter.RECORD_HEADER_SIZE + key.length, value);
+                        writer.add(key, value);
+                    }
+                }
+            }
+
+            // Entries that were added or replaced
+            overlay.forEach(new BiConsumer<K, Object>() {
+                @SuppressWarnings("unchecked")
+                public void accept(K key, Object value) {
+                    if (value != REMOVED) {
+                        try {
+                            writer.add(keyCodec.encode(key), valueCodec.encode((V) value));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            SnapshotWriter.abort(writer, e);
+            throw e.getCause();
+        } catch (Throwable e) {
+            SnapshotWriter.abort(writer, e);
+            throw e;
+        }
+        writer.close();
+        return new MappedHashtable<K, V>(path, keyCodec, valueCodec);
+    }
+
+    /**
+    * Close the file. The mapping itself is released once it is garbage
+    * collected.
+    */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+    * Find the record of an encoded key in the slot table.
+    *
+    * @param key The encoded key.
+    * @return the file offset of the record, or -1 if not found.
+    */
+    private long findRecord(byte[] key) {
+        int hash = strategy.hash(key);
+        long slot = (hash & 0xffffffffL) & mask;
+        long record;
+
+        while ((record = file.getLong(SnapshotWriter.HEADER_SIZE + slot * 8)) != 0) {
+            if (file.getInt(record) == hash && keyEquals(record, key)) {
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+    * Compare an encoded key with the key of a record.
+    */
+    private boolean keyEquals(long record, byte[] key) {
+        if (file.getInt(record + 4) != key.length) {
+            return false;
+        }
+
+        long start = record + SnapshotWriter.RECORD_HEADER_SIZE;
+        for (int i = 0; i < key.length; i++) {
+            if (file.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Read and decode the value of a record.
+    */
+    private V readValue(long record) {
+        byte[] value = new byte[file.getInt(record + 8)];
+        file.get(record + SnapshotWriter.RECORD_HEADER_SIZE + file.getInt(record + 4), value);
+        return valueCodec.decode(value);
+    }
+
+    /**
+    * Writing a snapshot, mapping it, and changing it through the overlay.
+    */
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get("hashtable.snapshot");
+        Path compacted = Paths.get("hashtable.compacted");
+        StringCodec codec = new StringCodec();
+
+        System.out.println("Writing a snapshot of 100000 elements.");
+        Hashtable<String, String> ht = new Hashtable<String, String>(16);
+        for (int i = 0; i < 100000; i++) {
+            ht.add("key" + i, "value" + i);
+        }
+        ht.snapshot(path, codec, codec);
+
+        System.out.println("Mapping the snapshot.");
+        MappedHashtable<String, String> mapped =
+            new MappedHashtable<String, String>(path, codec, codec);
+        System.out.println("Size: " + mapped.getSize());
+        System.out.println("Value for key42: " + mapped.get("key42"));
+
+        System.out.println("Replacing key42 and deleting key43.");
+        mapped.add("key42", "changed");
+        mapped.remove("key43");
+        System.out.println("Size: " + mapped.getSize());
+
+        System.out.println("Compacting into a new snapshot.");
+        MappedHashtable<String, String> merged = mapped.compact(compacted);
+        System.out.println("Size: " + merged.getSize());
+        System.out.println("Value for key42: " + merged.get("key42"));
+        System.out.println("Value for key43: " + merged.get("key43"));
+
+        mapped.close();
+        merged.close();
+        Files.delete(path);
+        Files.delete(compacted);
+    }
+}
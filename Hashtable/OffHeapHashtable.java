@@ -0,0 +1,670 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+* Hash table for byte array keys and values that keeps all of its data
+* outside of the Java heap, in direct ByteBuffers. The garbage collector only
+* sees a handful of objects (the index buffer, the arena chunks and a couple
+* of arrays), no matter how many entries are stored.
+*
+* The table has two parts:
+*
+* 1. Index: an open addressing table of 8-byte slots in a direct buffer. A
+*    slot holds the address of a record plus 24 bits of its hash, so most
+*    slots that hold a different key are skipped without reading the record.
+* 2. Arena: direct buffer chunks that records are carved out of. A record is
+*    [block header][hash][key length][value length][key bytes][value bytes],
+*    padded to a multiple of 8 bytes. The block header holds the block's size
+*    and whether it and the block before it are in use.
+*
+* Freed blocks are merged with free neighbours right away, using the size
+* that a free block also keeps in its last 4 bytes (a boundary tag), so two
+* free blocks are never next to each other, and a freed block at the end of
+* the last chunk goes back to the chunk's unused space. Free blocks are kept
+* in bins by size: one bin per size below 256 bytes, then four bins per power
+* of two. An insert takes a block from the bin for its size, or else any
+* block from the nearest larger bin that has one, found with a bitmap of the
+* bins in use, and frees what it does not need. The arena therefore only
+* grows when no free block is big enough, and reuses freed space whatever
+* the mix of record sizes.
+*
+* get returns a copy of the value, since the bytes live off-heap.
+*/
+public class OffHeapHashtable implements HashtableInterface<byte[], byte[]> {
+    private static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+    private static final int MAXIMUM_CHUNK_SIZE = 1 << 30;
+    private static final int MAXIMUM_CAPACITY = 1 << 27;
+    private static final double LOAD_FACTOR = 0.75;
+
+    // Record layout: block header, hash, key length and value length
+    private static final int HEADER_SIZE = 16;
+    private static final int ALIGNMENT = 8;
+
+    // A free block holds its header, two links and a footer
+    private static final int MINIMUM_BLOCK = 24;
+
+    // Flags in the low bits of a block header
+    private static final int IN_USE = 1;
+    private static final int PREV_IN_USE = 2;
+    private static final int FLAGS = ALIGNMENT - 1;
+
+    // One bin per size below 256 bytes, then four per power of two
+    private static final int EXACT_BINS = 32;
+    private static final int BINS = EXACT_BINS + 4 * (31 - 8);
+
+    // Blocks looked at in a shared bin before moving to a larger bin
+    private static final int BIN_SCAN = 16;
+
+    // Slot layout: 24 bits of hash above a 40 bit address in 8-byte units
+    private static final int ADDRESS_BITS = 40;
+    private static final long ADDRESS_MASK = (1L << ADDRESS_BITS) - 1;
+
+    private final ByteArrayHashStrategy strategy;
+    private final int chunkSize;
+
+    private ByteBuffer index;
+    private int capacity;
+    private int mask;
+    private int size;
+
+    private final ArrayList<ByteBuffer> chunks;
+    private int used;
+
+    // Heads of the bins' free lists, as address + 1 so that 0 means empty
+    private final long[] bins;
+    private final long[] binMap;
+
+    /**
+    * Constructor method for an OffHeapHashtable with 64 MB arena chunks.
+    *
+    * @param capacity The initial number of index slots.
+    */
+    public OffHeapHashtable(int capacity) {
+        this(capacity, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+    * Constructor method for an OffHeapHashtable.
+    *
+    * @param capacity The initial number of index slots, rounded up to a power
+    * of two.
+    * @param chunkSize The size of each arena chunk, which bounds the size of
+    * a single record.
+    */
+    public OffHeapHashtable(int capacity, int chunkSize) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (chunkSize < MINIMUM_BLOCK || chunkSize > MAXIMUM_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Illegal chunk size: " + chunkSize);
+        }
+
+        this.strategy = new ByteArrayHashStrategy();
+        this.chunkSize = chunkSize & ~(ALIGNMENT - 1);
+        this.chunks = new ArrayList<ByteBuffer>();
+        this.bins = new long[BINS];
+        this.binMap = new long[(BINS + 63) / 64];
+        allocateIndex(capacity >= MAXIMUM_CAPACITY
+            ? MAXIMUM_CAPACITY : Math.max(2, Integer.highestOneBit(capacity - 1) << 1));
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Get the number of off-heap bytes reserved for the index and the arena.
+    *
+    * @return the number of bytes.
+    */
+    public long getOffHeapBytes() {
+        return (long) capacity * 8 + (long) chunks.size() * chunkSize;
+    }
+
+    /**
+    * Return a copy of the value associated with the specified key.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    public byte[] get(byte[] key) {
+        int slot = find(key, strategy.hash(key));
+
+        // Key is not in the table
+        if (slot < 0) {
+            return null;
+        }
+
+        return readValue(addressOf(index.getLong(slot * 8)));
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. Both arrays are copied into the arena.
+    *
+    * @param key The key.
+    * @param value The value.
+    */
+    public void add(byte[] key, byte[] value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Null keys and values are not supported");
+        }
+
+        int hash = strategy.hash(key);
+        int slot = find(key, hash);
+        int blockSize = blockSize(key.length, value.length);
+        long address;
+
+        // Key already present
+        if (slot >= 0) {
+            address = addressOf(index.getLong(slot * 8));
+
+            // Still fits, overwrite in place and free the room not needed
+            if (blockSize <= blockSizeAt(address)) {
+                writeRecord(address, hash, key, value);
+                trim(address, blockSize);
+                return;
+            }
+
+            // Otherwise move the record to a block of the right size
+            free(address);
+            address = allocate(blockSize);
+            writeRecord(address, hash, key, value);
+            index.putLong(slot * 8, slotValue(hash, address));
+            return;
+        }
+
+        // Find the empty slot that ends the key's run
+        address = allocate(blockSize);
+        writeRecord(address, hash, key, value);
+        slot = hash & mask;
+        while (index.getLong(slot * 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putLong(slot * 8, slotValue(hash, address));
+        size++;
+
+        if (size > capacity * LOAD_FACTOR) {
+            resizeIndex();
+        }
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key.
+    *
+    * @param key The key to identify the pair.
+    * @return a copy of the value that was removed, or null if not found.
+    */
+    public byte[] remove(byte[] key) {
+        int hole = find(key, strategy.hash(key));
+
+        // Key is not in the table
+        if (hole < 0) {
+            return null;
+        }
+
+        long address = addressOf(index.getLong(hole * 8));
+        byte[] removed = readValue(address);
+        free(address);
+        size--;
+
+        // Shift later slots of the run back if the hole is on their path
+        int slot = hole;
+        long entry;
+        while ((entry = index.getLong((slot = (slot + 1) & mask) * 8)) != 0) {
+            int home = hashAt(addressOf(entry)) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                index.putLong(hole * 8, entry);
+                hole = slot;
+            }
+        }
+        index.putLong(hole * 8, 0);
+        return removed;
+    }
+
+    /**
+    * Find the index slot of a key.
+    *
+    * @param key The key to look for.
+    * @param hash The hash of the key.
+    * @return the slot, or -1 if the key is not in the table.
+    */
+    private int find(byte[] key, int hash) {
+        long tag = tagOf(hash);
+        int slot = hash & mask;
+        long entry;
+
+        while ((entry = index.getLong(slot * 8)) != 0) {
+
+            // Only read the record if the stored hash bits match
+            if ((entry >>> ADDRESS_BITS) == tag && keyEquals(addressOf(entry), key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+    * Compare a key with the key of the record at the given address, eight
+    * bytes at a time.
+    */
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int i = 0;
+
+        if (chunk.getInt(offset + 8) != key.length) {
+            return false;
+        }
+        offset += HEADER_SIZE;
+
+        for (; i + 8 <= key.length; i += 8) {
+            if (chunk.getLong(offset + i) != getLong(key, i)) {
+                return false;
+            }
+        }
+        for (; i < key.length; i++) {
+            if (chunk.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Read eight bytes of an array in the arena's (big endian) byte order.
+    */
+    private static long getLong(byte[] bytes, int i) {
+        long result = 0;
+        for (int j = 0; j < 8; j++) {
+            result = (result << 8) | (bytes[i + j] & 0xff);
+        }
+        return result;
+    }
+
+    /**
+    * Copy the value of the record at the given address out of the arena.
+    */
+    private byte[] readValue(long address) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        byte[] value = new byte[chunk.getInt(offset + 12)];
+
+        chunk.position(offset + HEADER_SIZE + chunk.getInt(offset + 8));
+        chunk.get(value);
+        return value;
+    }
+
+    /**
+    * Write a whole record into the block at the given address, keeping the
+    * block header.
+    */
+    private void writeRecord(long address, int hash, byte[] key, byte[] value) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+
+        chunk.putInt(offset + 4, hash);
+        chunk.putInt(offset + 8, key.length);
+        chunk.putInt(offset + 12, value.length);
+        chunk.position(offset + HEADER_SIZE);
+        chunk.put(key);
+        chunk.put(value);
+    }
+
+    /**
+    * Get a block of at least the given size, from a bin if possible,
+    * otherwise from the unused end of the last chunk.
+    *
+    * @param blockSize The size of the block, a multiple of 8.
+    * @return the address of the block.
+    */
+    private long allocate(int blockSize) {
+        if (blockSize > chunkSize) {
+            throw new IllegalArgumentException("Record of " + blockSize
+                + " bytes does not fit in a chunk");
+        }
+
+        long address = takeFree(blockSize);
+        if (address >= 0) {
+            return address;
+        }
+
+        // Start a new chunk if this one is full, freeing what is left of it
+        if (chunks.isEmpty() || used + blockSize > chunkSize) {
+            if ((long) (chunks.size() + 1) * chunkSize >>> 3 > ADDRESS_MASK - 1) {
+                throw new IllegalStateException("Arena is full");
+            }
+            int rest = chunks.isEmpty() ? 0 : chunkSize - used;
+            address = (long) (chunks.size() - 1) * chunkSize + used;
+            chunks.add(ByteBuffer.allocateDirect(chunkSize));
+            used = 0;
+
+            // Too small to be free, it stays a block nobody uses
+            if (rest > 0 && rest < MINIMUM_BLOCK) {
+                chunkOf(address).putInt(offsetOf(address), rest | IN_USE | PREV_IN_USE);
+            }
+            else if (rest > 0) {
+                chunkOf(address).putInt(offsetOf(address), rest | PREV_IN_USE);
+                release(address);
+            }
+        }
+
+        address = (long) (chunks.size() - 1) * chunkSize + used;
+        chunkOf(address).putInt(offsetOf(address), blockSize | IN_USE | PREV_IN_USE);
+        used += blockSize;
+        return address;
+    }
+
+    /**
+    * Take a free block with room for the given size out of its bin, and free
+    * what is left of it again.
+    *
+    * @param blockSize The size needed.
+    * @return the address of the block, or -1 if no free block is big enough.
+    */
+    private long takeFree(int blockSize) {
+        int bin = binOf(blockSize);
+        long found = 0;
+
+        // Every block in an exact bin fits, a shared bin may hold smaller ones
+        if (bin < EXACT_BINS) {
+            found = bins[bin];
+        }
+        else {
+            long curr = bins[bin];
+            for (int i = 0; curr != 0 && i < BIN_SCAN; i++) {
+                if (blockSizeAt(curr - 1) >= blockSize) {
+                    found = curr;
+                    break;
+                }
+                curr = chunkOf(curr - 1).getLong(offsetOf(curr - 1) + 4);
+            }
+        }
+
+        // Every block in a larger bin fits
+        if (found == 0) {
+            int larger = nextBin(bin + 1);
+            if (larger < 0) {
+                return -1;
+            }
+            found = bins[larger];
+        }
+
+        long address = found - 1;
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int available = blockSizeAt(address);
+
+        unlinkFree(address, available);
+        chunk.putInt(offset, available | IN_USE | PREV_IN_USE);
+        if (offset + available < chunkSize) {
+            chunk.putInt(offset + available, chunk.getInt(offset + available) | PREV_IN_USE);
+        }
+        trim(address, blockSize);
+        return address;
+    }
+
+    /**
+    * Cut a block in use down to the given size, and free the rest if it is
+    * big enough to be a block of its own. Otherwise the block keeps it.
+    */
+    private void trim(long address, int blockSize) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int header = chunk.getInt(offset);
+        int rest = (header & ~FLAGS) - blockSize;
+
+        if (rest >= MINIMUM_BLOCK) {
+            chunk.putInt(offset, blockSize | (header & FLAGS));
+            chunk.putInt(offset + blockSize, rest | PREV_IN_USE);
+            release(address + blockSize);
+        }
+    }
+
+    /**
+    * Free the block of a removed record.
+    *
+    * @param address The address of the record.
+    */
+    private void free(long address) {
+        release(address);
+    }
+
+    /**
+    * Free a block, merging it with the free blocks on either side. A free
+    * block that ends where the last chunk's unused space starts becomes part
+    * of that space again.
+    *
+    * @param address The address of the block, whose header has its size and
+    * a valid PREV_IN_USE flag.
+    */
+    private void release(long address) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int header = chunk.getInt(offset);
+        int end = offset + (header & ~FLAGS);
+        int size;
+
+        // Merge with the block before, found through its footer
+        if ((header & PREV_IN_USE) == 0) {
+            size = chunk.getInt(offset - 4);
+            unlinkFree(address - size, size);
+            address -= size;
+            offset -= size;
+        }
+
+        // Give the space back to the end of the last chunk
+        if (end == used && address / chunkSize == chunks.size() - 1) {
+            used = offset;
+            return;
+        }
+
+        // Merge with the block after, or tell it that this one is free
+        if (end < chunkSize) {
+            header = chunk.getInt(end);
+            if ((header & IN_USE) == 0) {
+                unlinkFree(address + end - offset, header & ~FLAGS);
+                end += header & ~FLAGS;
+            }
+            else {
+                chunk.putInt(end, header & ~PREV_IN_USE);
+            }
+        }
+        pushFree(address, end - offset);
+    }
+
+    /**
+    * Put a free block at the head of its bin. A free block holds the next
+    * and previous blocks of its bin after its header, and its size again in
+    * its last 4 bytes. The block before it is always in use, since free
+    * neighbours are merged.
+    */
+    private void pushFree(long address, int blockSize) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int bin = binOf(blockSize);
+        long head = bins[bin];
+
+        chunk.putInt(offset, blockSize | PREV_IN_USE);
+        chunk.putLong(offset + 4, head);
+        chunk.putLong(offset + 12, 0);
+        chunk.putInt(offset + blockSize - 4, blockSize);
+        if (head != 0) {
+            chunkOf(head - 1).putLong(offsetOf(head - 1) + 12, address + 1);
+        }
+        bins[bin] = address + 1;
+        binMap[bin >>> 6] |= 1L << bin;
+    }
+
+    /**
+    * Take a free block out of its bin.
+    */
+    private void unlinkFree(long address, int blockSize) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        long next = chunk.getLong(offset + 4);
+        long prev = chunk.getLong(offset + 12);
+        int bin = binOf(blockSize);
+
+        if (prev == 0) {
+            bins[bin] = next;
+            if (next == 0) {
+                binMap[bin >>> 6] &= ~(1L << bin);
+            }
+        }
+        else {
+            chunkOf(prev - 1).putLong(offsetOf(prev - 1) + 4, next);
+        }
+        if (next != 0) {
+            chunkOf(next - 1).putLong(offsetOf(next - 1) + 12, prev);
+        }
+    }
+
+    /**
+    * The bin for free blocks of the given size.
+    */
+    private static int binOf(int blockSize) {
+        if (blockSize < EXACT_BINS * ALIGNMENT) {
+            return blockSize / ALIGNMENT;
+        }
+        int log = 31 - Integer.numberOfLeadingZeros(blockSize);
+        return EXACT_BINS + 4 * (log - 8) + ((blockSize >>> (log - 2)) & 3);
+    }
+
+    /**
+    * Find the first bin from the given one on that holds a free block.
+    *
+    * @return the bin, or -1 if they are all empty.
+    */
+    private int nextBin(int from) {
+        for (int word = from >>> 6; word < binMap.length; word++) {
+            long bits = binMap[word];
+            if (word == from >>> 6) {
+                bits &= -1L << from;
+            }
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+    * Double the index and reinsert every slot. The records stay where they
+    * are; only their hashes are read again.
+    */
+    private void resizeIndex() {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Hash table is full");
+        }
+
+        ByteBuffer oldIndex = index;
+        int oldCapacity = capacity;
+        long entry;
+        int slot;
+
+        allocateIndex(capacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+            entry = oldIndex.getLong(i * 8);
+            if (entry != 0) {
+                slot = hashAt(addressOf(entry)) & mask;
+                while (index.getLong(slot * 8) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index.putLong(slot * 8, entry);
+            }
+        }
+    }
+
+    /**
+    * Allocate an empty index of the given number of slots.
+    */
+    private void allocateIndex(int newCapacity) {
+        index = ByteBuffer.allocateDirect(newCapacity * 8);
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+    /**
+    * Size of the block for a record, header included, padded to 8 bytes.
+    */
+    private static int blockSize(int keyLength, int valueLength) {
+        long size = (long) HEADER_SIZE + keyLength + valueLength;
+        size = (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Record is too large");
+        }
+        return (int) Math.max(size, MINIMUM_BLOCK);
+    }
+
+    /**
+    * Size of the block at the given address, from its header. It may be a
+    * little larger than its record needs.
+    */
+    private int blockSizeAt(long address) {
+        return chunkOf(address).getInt(offsetOf(address)) & ~FLAGS;
+    }
+
+    /**
+    * Hash stored in the record at the given address.
+    */
+    private int hashAt(long address) {
+        return chunkOf(address).getInt(offsetOf(address) + 4);
+    }
+
+    private static long tagOf(int hash) {
+        return (hash >>> 8) & 0xffffffL;
+    }
+
+    private static long slotValue(int hash, long address) {
+        return (tagOf(hash) << ADDRESS_BITS) | ((address >>> 3) + 1);
+    }
+
+    private static long addressOf(long entry) {
+        return ((entry & ADDRESS_MASK) - 1) << 3;
+    }
+
+    private ByteBuffer chunkOf(long address) {
+        return chunks.get((int) (address / chunkSize));
+    }
+
+    private int offsetOf(long address) {
+        return (int) (address % chunkSize);
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new off-heap hashtable.");
+        OffHeapHashtable ht = new OffHeapHashtable(16, 1 << 20);
+
+        System.out.println("Inserting 10000 elements.");
+        for (int i = 0; i < 10000; i++) {
+            ht.add(("key" + i).getBytes(), ("value" + i).getBytes());
+        }
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Off-heap bytes: " + ht.getOffHeapBytes());
+        System.out.println("Value for key42: " + new String(ht.get("key42".getBytes())));
+
+        System.out.println("Deleting element with key42 :).");
+        ht.remove("key42".getBytes());
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key42: " + ht.get("key42".getBytes()));
+    }
+}
@@ -0,0 +1,429 @@
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+* Hash table using open addressing with linear probing. Instead of keeping a
+* chain of nodes per bucket, keys and values are stored directly in two
+* parallel arrays. On a collision, we look at the following slots until we
+* find the key or an empty slot, so a lookup usually stays within one or two
+* cache lines and an insert never allocates (except when the table grows).
+*
+* Deleting uses backward shifting instead of tombstones: after a slot is
+* cleared, the entries after it in the same run are moved back to fill the
+* hole, so probe sequences never have to skip over deleted slots.
+*
+* Null keys are not supported, since an empty slot holds a null key.
+*/
+public class OpenAddressingHashtable<K, V> implements HashtableInterface<K, V> {
+    private static final double DEFAULT_LOAD_FACTOR = 0.5;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+    private int capacity;
+    private int mask;
+    private double loadFactor;
+    private int threshold;
+    private HashStrategy<? super K> strategy;
+
+    /**
+    * Constructor method for an OpenAddressingHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    */
+    public OpenAddressingHashtable(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+    * Constructor method for an OpenAddressingHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    */
+    public OpenAddressingHashtable(int capacity, double loadFactor) {
+        this(capacity, loadFactor, new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for an OpenAddressingHashtable that hashes and
+    * compares its keys with the given strategy.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    * @param strategy The hash strategy for the keys.
+    */
+    public OpenAddressingHashtable(int capacity, double loadFactor,
+            HashStrategy<? super K> strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
+        this.loadFactor = loadFactor;
+        this.strategy = strategy;
+        allocate(tableSizeFor(capacity));
+        size = 0;
+    }
+
+    /**
+    * Round the requested capacity up to a power of two, so the index can be
+    * computed with a bit mask instead of a division.
+    *
+    * @param capacity The requested capacity.
+    * @return the smallest power of two that is at least the capacity.
+    */
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+    * Allocate empty key and value arrays of the given size.
+    *
+    * @param newCapacity The number of slots, a power of two.
+    */
+    private void allocate(int newCapacity) {
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        threshold = (int) Math.min(newCapacity * loadFactor, newCapacity - 1);
+    }
+
+    /**
+    * Map the key to its home slot by masking the strategy's hash.
+    *
+    * @param key The key to hash.
+    * @return the index of the key's home slot.
+    */
+    @SuppressWarnings("unchecked")
+    private int hash(Object key) {
+        return strategy.hash((K) key) & mask;
+    }
+
+    /**
+    * Check if two keys are the same, as decided by the hash strategy.
+    */
+    @SuppressWarnings("unchecked")
+    private boolean keyEquals(Object a, Object b) {
+        return a == b || strategy.equals((K) a, (K) b);
+    }
+
+    /**
+    * Find the slot holding the key.
+    *
+    * @param key The key to look for.
+    * @return the index of the slot, or -1 if the key is not in the table.
+    */
+    private int find(Object key) {
+        int index = hash(key);
+        Object curr;
+
+        // Walk the run of occupied slots starting at the home slot
+        while ((curr = keys[index]) != null) {
+            if (keyEquals(curr, key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // Reached an empty slot, so the key is not here
+        return -1;
+    }
+
+    /**
+    * Find the slot holding the key, or the empty slot where it would go.
+    *
+    * @param key The key to look for.
+    * @return the index of the slot holding the key, or, if the key is not in
+    * the table, -(index + 1) for the empty slot that ended the search.
+    */
+    private int probe(Object key) {
+        int index = hash(key);
+        Object curr;
+
+        while ((curr = keys[index]) != null) {
+            if (keyEquals(curr, key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -(index + 1);
+    }
+
+    /**
+    * Probe for a key that may be added, rejecting null keys.
+    */
+    private int probeKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("Null keys are not supported");
+        }
+        return probe(key);
+    }
+
+    /**
+    * Store the result of an update in the slot found by probe: replace the
+    * value, claim the empty slot, or remove the key if the result is null.
+    *
+    * @param index The result of probe for the key.
+    * @return the value stored.
+    */
+    private V update(int index, K key, V value) {
+        if (value == null) {
+            if (index >= 0) {
+                deleteSlot(index);
+                size--;
+            }
+        }
+        else if (index >= 0) {
+            values[index] = value;
+        }
+        else {
+            keys[-(index + 1)] = key;
+            values[-(index + 1)] = value;
+            size++;
+            if (size > threshold) {
+                resize();
+            }
+        }
+        return value;
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Return the value associated with the specified key. O(1) on average.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int index = find(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. O(1) on average.
+    *
+    * @param key The key, must not be null.
+    * @param value The value to associate with the key.
+    */
+    public void add(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Null keys are not supported");
+        }
+
+        int index = hash(key);
+        Object curr;
+
+        // Look for the key, stopping at the first empty slot
+        while ((curr = keys[index]) != null) {
+
+            // Found the key, replace old value with new value
+            if (keyEquals(curr, key)) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // Claim the empty slot
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        // Grow once the table gets too full, since runs get long quickly
+        if (size > threshold) {
+            resize();
+        }
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. O(1) on average.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int index = find(key);
+
+        // Key is not in the table
+        if (index < 0) {
+            return null;
+        }
+
+        V removed = (V) values[index];
+        deleteSlot(index);
+        size--;
+        return removed;
+    }
+
+    /**
+    * {@inheritDoc} The key is found with a single probe.
+    */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        int index = probeKey(key);
+        V old = index < 0 ? null : (V) values[index];
+        if (old == null) {
+            update(index, key, value);
+        }
+        return old;
+    }
+
+    /**
+    * {@inheritDoc} The key is found with a single probe.
+    */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int index = probeKey(key);
+        V value = index < 0 ? null : (V) values[index];
+        if (value == null && (value = mappingFunction.apply(key)) != null) {
+            update(index, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is found with a single probe.
+    */
+    @SuppressWarnings("unchecked")
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int index = probeKey(key);
+        V old = index < 0 ? null : (V) values[index];
+        return update(index, key, remappingFunction.apply(key, old));
+    }
+
+    /**
+    * {@inheritDoc} The key is found with a single probe.
+    */
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int index = probeKey(key);
+        V old = index < 0 ? null : (V) values[index];
+        return update(index, key, old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+    * Clear a slot and shift later entries of the same run back into the
+    * hole. An entry may only move back if the hole lies between its home slot
+    * and its current slot (cyclically), otherwise it could no longer be
+    * reached from its home slot.
+    *
+    * @param hole The index of the slot to clear.
+    */
+    private void deleteSlot(int hole) {
+        int index = hole;
+        int home;
+        Object curr;
+
+        while (true) {
+            index = (index + 1) & mask;
+            curr = keys[index];
+
+            // End of the run, nothing more to shift
+            if (curr == null) {
+                break;
+            }
+
+            // Move the entry back if the hole is on its probe path
+            home = hash(curr);
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = curr;
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    /**
+    * Double the number of slots and reinsert every entry.
+    */
+    private void resize() {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Hash table is full");
+        }
+
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int index;
+
+        allocate(capacity * 2);
+
+        // Entries are known to be distinct, so just find an empty slot
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                index = hash(oldKeys[i]);
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+    * Print the contents of every slot.
+    */
+    public void print() {
+        for (int i = 0; i < capacity; i++) {
+            System.out.println("Slot " + i + ": "
+                + (keys[i] == null ? "" : keys[i] + " -> " + values[i]));
+        }
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new open addressing hashtable.");
+        OpenAddressingHashtable<Integer, String> ht =
+            new OpenAddressingHashtable<Integer, String>(8);
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Inserting 3 elements.");
+        ht.add(1, "Hello");
+        ht.add(2, "World");
+        ht.add(9, "Again");
+        System.out.println("Size: " + ht.getSize());
+        ht.print();
+
+        System.out.println("Deleting element with key 2 :).");
+        ht.remove(2);
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 9: " + ht.get(9));
+    }
+}
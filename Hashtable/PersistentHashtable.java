@@ -0,0 +1,594 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+* Hash table built on a hash array mapped trie (HAMT). The trie is immutable:
+* each level uses 5 bits of the key's hash to pick one of up to 32 children,
+* and a node only stores the children it actually has, packed in an array and
+* found with a 32-bit bitmap. Changing a key copies just the nodes on the
+* path from the root to that key, at most 7 small arrays, and every other
+* node is shared with the previous version.
+*
+* The table itself only holds a reference to the current version. Writers
+* build a new version and swap it in with a compare-and-set, retrying if
+* another writer got there first, so readers never lock and never wait, and
+* writers never block each other either. Taking a snapshot just copies the
+* reference, which makes it O(1): the snapshot keeps seeing the same entries
+* no matter how the table changes afterwards.
+*
+* Null keys and null values are not supported, since get returns null for a
+* missing key.
+*/
+public class PersistentHashtable<K, V> implements HashtableInterface<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final AtomicReference<Root<K, V>> root;
+    private final HashStrategy<? super K> strategy;
+
+    /**
+    * Constructor method for an empty PersistentHashtable.
+    */
+    public PersistentHashtable() {
+        this(new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for an empty PersistentHashtable that hashes and
+    * compares its keys with the given strategy.
+    *
+    * @param strategy The hash strategy for the keys.
+    */
+    public PersistentHashtable(HashStrategy<? super K> strategy) {
+        this(strategy, new Root<K, V>(new BitmapNode<K, V>(0, new Object[0]), 0));
+    }
+
+    /**
+    * Constructor method for a table starting out at an existing version.
+    */
+    private PersistentHashtable(HashStrategy<? super K> strategy, Root<K, V> version) {
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
+        this.strategy = strategy;
+        this.root = new AtomicReference<Root<K, V>>(version);
+    }
+
+    /**
+    * Hash the key with the strategy.
+    */
+    private int hash(K key) {
+        return strategy.hash(key);
+    }
+
+    /**
+    * Get a snapshot of the table in O(1). The snapshot is a table of its own
+    * that shares all of its nodes with this one; changes to either table do
+    * not show up in the other.
+    *
+    * @return the snapshot.
+    */
+    public PersistentHashtable<K, V> snapshot() {
+        return new PersistentHashtable<K, V>(strategy, root.get());
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return root.get().size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return root.get().size == 0;
+    }
+
+    /**
+    * Return the value associated with the specified key. Never blocks. O(1)
+    * in practice, since the trie is at most 7 levels deep.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    public V get(K key) {
+        return root.get().node.find(0, hash(key), key, strategy);
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present.
+    *
+    * @param key The key, must not be null.
+    * @param value The value, must not be null.
+    */
+    public void add(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+
+        int h = hash(key);
+        Root<K, V> curr;
+        Node<K, V> node;
+        V old;
+
+        // Build the new version from the current one, until no other
+        // writer changes the table in between
+        do {
+            curr = root.get();
+            old = curr.node.find(0, h, key, strategy);
+            node = curr.node.put(0, h, key, value, strategy);
+            if (node == curr.node) {
+                return;
+            }
+        } while (!root.compareAndSet(curr,
+            new Root<K, V>(node, old == null ? curr.size + 1 : curr.size)));
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    public V remove(K key) {
+        int h = hash(key);
+        Root<K, V> curr;
+        V old;
+
+        do {
+            curr = root.get();
+            old = curr.node.find(0, h, key, strategy);
+
+            // Key is not in the table
+            if (old == null) {
+                return null;
+            }
+        } while (!root.compareAndSet(curr,
+            new Root<K, V>(removeFrom(curr.node, h, key), curr.size - 1)));
+        return old;
+    }
+
+    /**
+    * Remove a key that is known to be in the trie, keeping an empty root
+    * node when the last key goes.
+    */
+    private Node<K, V> removeFrom(Node<K, V> node, int hash, K key) {
+        Node<K, V> result = node.remove(0, hash, key, strategy);
+        return result != null ? result : new BitmapNode<K, V>(0, new Object[0]);
+    }
+
+    /**
+    * Add the pair only if the key is missing, atomically.
+    *
+    * @param key The key, must not be null.
+    * @param value The value, must not be null.
+    * @return the value already there, or null if the pair was added.
+    */
+    public V putIfAbsent(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+
+        int h = hash(key);
+        Root<K, V> curr;
+        V old;
+
+        do {
+            curr = root.get();
+            old = curr.node.find(0, h, key, strategy);
+            if (old != null) {
+                return old;
+            }
+        } while (!root.compareAndSet(curr,
+            new Root<K, V>(curr.node.put(0, h, key, value, strategy), curr.size + 1)));
+        return null;
+    }
+
+    /**
+    * If the key is missing, compute its value and add it, atomically. The
+    * function may be called again if another writer changes the table
+    * first, so it should not have side effects.
+    *
+    * @param key The key, must not be null.
+    * @param mappingFunction Computes the value, or returns null to add nothing.
+    * @return the current (existing or computed) value, or null.
+    */
+    public V computeIfAbsent(K key, final Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        return compute(key, new BiFunction<K, V, V>() {
+            public V apply(K k, V old) {
+                return old != null ? old : mappingFunction.apply(k);
+            }
+        });
+    }
+
+    /**
+    * Compute a new value from the key and its current value, atomically. A
+    * null result removes the key. The function may be called again if
+    * another writer changes the table first, so it should not have side
+    * effects.
+    *
+    * @param key The key, must not be null.
+    * @param remappingFunction Computes the new value from the key and the
+    * current value, which is null if the key is missing.
+    * @return the new value, or null if the key is now missing.
+    */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int h = hash(key);
+        Root<K, V> curr;
+        Node<K, V> node;
+        V old;
+        V value;
+        int size;
+
+        do {
+            curr = root.get();
+            old = curr.node.find(0, h, key, strategy);
+            value = remappingFunction.apply(key, old);
+            size = curr.size;
+
+            if (value != null) {
+                node = curr.node.put(0, h, key, value, strategy);
+                size += old == null ? 1 : 0;
+            }
+            else if (old != null) {
+                node = removeFrom(curr.node, h, key);
+                size--;
+            }
+            else {
+                node = curr.node;
+            }
+
+            // Nothing changed, no need to publish a new version
+            if (node == curr.node) {
+                return value;
+            }
+        } while (!root.compareAndSet(curr, new Root<K, V>(node, size)));
+        return value;
+    }
+
+    /**
+    * Add the value if the key is missing, otherwise combine the current value
+    * with it, atomically. A null result removes the key. The function may be
+    * called again if another writer changes the table first.
+    *
+    * @param key The key, must not be null.
+    * @param value The value to add or combine, must not be null.
+    * @param remappingFunction Combines the current value with the new one.
+    * @return the new value, or null if the key is now missing.
+    */
+    public V merge(K key, final V value,
+            final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        return compute(key, new BiFunction<K, V, V>() {
+            public V apply(K k, V old) {
+                return old == null ? value : remappingFunction.apply(old, value);
+            }
+        });
+    }
+
+    /**
+    * Perform the given action on every key, value pair of the current
+    * version, in no particular order. Writers may keep changing the table
+    * meanwhile; the action sees exactly the entries of the version that was
+    * current when forEach was called.
+    *
+    * @param action The action to perform on each pair.
+    */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.get().node.forEach(action);
+    }
+
+    /**
+    * One version of the table: the root of the trie and its size, swapped
+    * together.
+    */
+    static final class Root<K, V> {
+        final Node<K, V> node;
+        final int size;
+
+        Root(Node<K, V> node, int size) {
+            this.node = node;
+            this.size = size;
+        }
+    }
+
+    /**
+    * Immutable trie node. Every change returns a new node (or the same node
+    * if nothing changed) and leaves this one as it was.
+    */
+    abstract static class Node<K, V> {
+
+        /**
+        * Look up a key below this node.
+        *
+        * @param shift The hash bits already used by the levels above.
+        * @return the value, or null if not found.
+        */
+        abstract V find(int shift, int hash, Object key, HashStrategy<? super K> strategy);
+
+        /**
+        * Add or replace a key below this node.
+        *
+        * @return the new node, or this node if the key already had the value.
+        */
+        abstract Node<K, V> put(int shift, int hash, K key, V value,
+            HashStrategy<? super K> strategy);
+
+        /**
+        * Remove a key below this node.
+        *
+        * @return the new node, this node if the key was not found, or null
+        * if the node is now empty.
+        */
+        abstract Node<K, V> remove(int shift, int hash, Object key,
+            HashStrategy<? super K> strategy);
+
+        /**
+        * Perform the action on every pair below this node.
+        */
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+    }
+
+    /**
+    * Inner trie node. Bit i of the bitmap is set if the node has a child for
+    * the 5 hash bits equal to i. Children are packed in order into an array
+    * of pairs: a key and its value, or null and a sub-node.
+    */
+    static final class BitmapNode<K, V> extends Node<K, V> {
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        /**
+        * Position of the pair for a bit, counting the set bits below it.
+        */
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1)) << 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        V find(int shift, int hash, Object key, HashStrategy<? super K> strategy) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node<K, V>) array[i + 1]).find(shift + BITS, hash, key, strategy);
+            }
+            return k == key || strategy.equals((K) k, (K) key) ? (V) array[i + 1] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(int shift, int hash, K key, V value, HashStrategy<? super K> strategy) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = index(bit);
+            Object[] copy;
+
+            // No child for these bits yet, add the pair
+            if ((bitmap & bit) == 0) {
+                copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                return new BitmapNode<K, V>(bitmap | bit, copy);
+            }
+
+            Object k = array[i];
+            Object v = array[i + 1];
+
+            // Child is a sub-node, put the key there
+            if (k == null) {
+                Node<K, V> child = ((Node<K, V>) v).put(shift + BITS, hash, key, value, strategy);
+                return child == v ? this : with(i + 1, child);
+            }
+
+            // Same key, replace the value
+            if (k == key || strategy.equals((K) k, key)) {
+                return v == value ? this : with(i + 1, value);
+            }
+
+            // Another key with the same bits, push both down a level
+            copy = array.clone();
+            copy[i] = null;
+            copy[i + 1] = pair(shift + BITS, strategy.hash((K) k), (K) k, (V) v,
+                hash, key, value, strategy);
+            return new BitmapNode<K, V>(bitmap, copy);
+        }
+
+        /**
+        * Copy of this node with one array element replaced.
+        */
+        private BitmapNode<K, V> with(int i, Object element) {
+            Object[] copy = array.clone();
+            copy[i] = element;
+            return new BitmapNode<K, V>(bitmap, copy);
+        }
+
+        /**
+        * Build a node holding two different keys.
+        */
+        private static <K, V> Node<K, V> pair(int shift, int hash1, K key1, V value1,
+                int hash2, K key2, V value2, HashStrategy<? super K> strategy) {
+            if (hash1 == hash2) {
+                return new CollisionNode<K, V>(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            return new BitmapNode<K, V>(0, new Object[0])
+                .put(shift, hash1, key1, value1, strategy)
+                .put(shift, hash2, key2, value2, strategy);
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(int shift, int hash, Object key, HashStrategy<? super K> strategy) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int i = index(bit);
+            Object k = array[i];
+
+            if (k == null) {
+                Node<K, V> child = (Node<K, V>) array[i + 1];
+                Node<K, V> newChild = child.remove(shift + BITS, hash, key, strategy);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    return with(i + 1, newChild);
+                }
+            }
+            else if (!(k == key || strategy.equals((K) k, (K) key))) {
+                return this;
+            }
+
+            // Drop the pair, and the node too if it was the last one
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new BitmapNode<K, V>(bitmap & ~bit, copy);
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node<K, V>) array[i + 1]).forEach(action);
+                } else {
+                    action.accept((K) array[i], (V) array[i + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+    * Node for keys whose full 32-bit hashes are equal, so no level of the
+    * trie can tell them apart. Holds key, value pairs in a plain array that
+    * is searched linearly.
+    */
+    static final class CollisionNode<K, V> extends Node<K, V> {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int indexOf(Object key, HashStrategy<? super K> strategy) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == key || strategy.equals((K) array[i], (K) key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        V find(int shift, int hash, Object key, HashStrategy<? super K> strategy) {
+            int i = hash == this.hash ? indexOf(key, strategy) : -1;
+            return i < 0 ? null : (V) array[i + 1];
+        }
+
+        Node<K, V> put(int shift, int hash, K key, V value, HashStrategy<? super K> strategy) {
+
+            // Different hash, put this node and the key under a new inner node
+            if (hash != this.hash) {
+                Object[] pair = {null, this};
+                return new BitmapNode<K, V>(1 << ((this.hash >>> shift) & MASK), pair)
+                    .put(shift, hash, key, value, strategy);
+            }
+
+            int i = indexOf(key, strategy);
+            Object[] copy;
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                copy = array.clone();
+                copy[i + 1] = value;
+            }
+            else {
+                copy = Arrays.copyOf(array, array.length + 2);
+                copy[array.length] = key;
+                copy[array.length + 1] = value;
+            }
+            return new CollisionNode<K, V>(hash, copy);
+        }
+
+        Node<K, V> remove(int shift, int hash, Object key, HashStrategy<? super K> strategy) {
+            int i = hash == this.hash ? indexOf(key, strategy) : -1;
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode<K, V>(hash, copy);
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept((K) array[i], (V) array[i + 1]);
+            }
+        }
+    }
+
+    /**
+    * Taking a snapshot and changing the table afterwards.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new persistent hashtable.");
+        PersistentHashtable<Integer, String> ht = new PersistentHashtable<Integer, String>();
+        for (int i = 0; i < 1000; i++) {
+            ht.add(i, "Value " + i);
+        }
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Taking a snapshot, then removing 500 keys and changing key 1.");
+        PersistentHashtable<Integer, String> snapshot = ht.snapshot();
+        for (int i = 500; i < 1000; i++) {
+            ht.remove(i);
+        }
+        ht.add(1, "Changed");
+
+        System.out.println("Size: " + ht.getSize() + ", snapshot size: " + snapshot.getSize());
+        System.out.println("Value for key 1: " + ht.get(1)
+            + ", in the snapshot: " + snapshot.get(1));
+        System.out.println("Value for key 999: " + ht.get(999)
+            + ", in the snapshot: " + snapshot.get(999));
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Random;
+
+/**
+* Default hash strategy. The key's hashCode is combined with a seed and then
+* run through the MurmurHash3 finalizer, which makes every bit of the result
+* depend on every bit of the input. Poor hashCode implementations (like small
+* consecutive integers, or hash codes that only differ in their high bits)
+* then still spread evenly across power-of-two tables. Picking the seed at
+* random for each table means keys with different hash codes land in
+* different buckets from one table to the next.
+*
+* The seed cannot help with keys whose hash codes are equal, though: they
+* get the same hash under every seed. Such keys are easy to build for types
+* like String, so for keys an attacker chooses use a strategy that mixes the
+* seed into the key's contents, such as StringHashStrategy or
+* ByteArrayHashStrategy.
+*/
+public class SeededHashStrategy<K> implements HashStrategy<K> {
+    private static final Random SEEDS = new Random();
+
+    private final int seed;
+
+    /**
+    * Constructor method for a SeededHashStrategy with a random seed.
+    */
+    public SeededHashStrategy() {
+        this(SEEDS.nextInt());
+    }
+
+    /**
+    * Constructor method for a SeededHashStrategy with a fixed seed.
+    *
+    * @param seed The seed mixed into every hash.
+    */
+    public SeededHashStrategy(int seed) {
+        this.seed = seed;
+    }
+
+    /**
+    * Mix the key's hash code with the seed.
+    *
+    * @param key The key to hash.
+    * @return the mixed hash.
+    */
+    public int hash(K key) {
+        return mix(key.hashCode() ^ seed);
+    }
+
+    /**
+    * Compare keys with their own equals method.
+    */
+    public boolean equals(K a, K b) {
+        return a == b || a.equals(b);
+    }
+
+    /**
+    * MurmurHash3's 32-bit finalizer.
+    *
+    * @param h The value to mix.
+    * @return the mixed value.
+    */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+* Streams key, value pairs into a snapshot file that MappedHashtable can
+* serve lookups from directly. The number of entries must be known up front,
+* since it decides the size of the slot table. The file layout is:
+*
+* 1. Header (32 bytes): magic, version, entry count, slot count and hash
+*    seed.
+* 2. Slot table: an open addressing table of 8-byte file offsets, one per
+*    slot, 0 for an empty slot. It is at most half full.
+* 3. Records: [hash][key length][value length][key bytes][value bytes]. A
+*    record never crosses a 1 GB boundary, so it can be read from a single
+*    mapped region.
+*
+* The slot table is filled through a memory mapping while the records are
+* appended with buffered writes. The header is only written by close, once
+* every record is in, so a file that was not closed properly is rejected
+* when opened. A writer that fails partway through should be aborted
+* instead, which deletes the file.
+*/
+public class SnapshotWriter implements Closeable {
+    static final int MAGIC = 0x48545331;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 12;
+
+    private static final Random SEEDS = new Random();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedFile slots;
+    private final DataOutputStream out;
+    private final ByteArrayHashStrategy strategy;
+    private final int seed;
+    private final int expected;
+    private final long slotCount;
+    private final long mask;
+    private final long dataOffset;
+    private long position;
+    private int count;
+
+    /**
+    * Create a snapshot file, replacing any existing file at the path.
+    *
+    * @param path Where to write the snapshot.
+    * @param expected The number of entries that will be added.
+    */
+    public SnapshotWriter(Path path, int expected) throws IOException {
+        if (expected < 0) {
+            throw new IllegalArgumentException("Illegal entry count: " + expected);
+        }
+
+        this.path = path;
+        this.expected = expected;
+        this.seed = SEEDS.nextInt();
+        this.strategy = new ByteArrayHashStrategy(seed);
+        this.slotCount = Math.max(2, Long.highestOneBit(Math.max(1, 2L * expected) - 1) << 1);
+        this.mask = slotCount - 1;
+        this.dataOffset = HEADER_SIZE + slotCount * 8;
+        this.position = dataOffset;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        slots = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, dataOffset);
+        channel.position(dataOffset);
+        out = new DataOutputStream(new BufferedOutputStream(
+            Channels.newOutputStream(channel), 1 << 16));
+    }
+
+    /**
+    * Append a key, value pair. Keys must be distinct.
+    *
+    * @param key The encoded key.
+    * @param value The encoded value.
+    */
+    public void add(byte[] key, byte[] value) throws IOException {
+        long length = RECORD_HEADER_SIZE + (long) key.length + value.length;
+        int hash = strategy.hash(key);
+
+        if (count == expected) {
+            throw new IllegalStateException("More entries than the " + expected + " expected");
+        }
+        if (length > MappedFile.REGION_SIZE) {
+            throw new IllegalArgumentException("Record of " + length + " bytes is too large");
+        }
+
+        // Keep 4-byte alignment, and pad to the next region if it would cross
+        long start = (position + 3) & ~3L;
+        if ((start >>> MappedFile.REGION_BITS) != ((start + length - 1) >>> MappedFile.REGION_BITS)) {
+            start = ((start >>> MappedFile.REGION_BITS) + 1) << MappedFile.REGION_BITS;
+        }
+        for (; position < start; position++) {
+            out.write(0);
+        }
+
+        out.writeInt(hash);
+        out.writeInt(key.length);
+        out.writeInt(value.length);
+        out.write(key);
+        out.write(value);
+        position += length;
+
+        // Point the first empty slot in the key's run at the record
+        long slot = (hash & 0xffffffffL) & mask;
+        while (slots.getLong(HEADER_SIZE + slot * 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putLong(HEADER_SIZE + slot * 8, start);
+        count++;
+    }
+
+    /**
+    * Flush the records, then write the header and force everything to disk.
+    * If that fails the file is deleted.
+    */
+    public void close() throws IOException {
+        boolean written = false;
+
+        try {
+            out.flush();
+            slots.force();
+            channel.force(true);
+
+            // The header goes last, and only once everything before it is
+            // on disk
+            slots.putInt(0, MAGIC);
+            slots.putInt(4, VERSION);
+            slots.putLong(8, count);
+            slots.putLong(16, slotCount);
+            slots.putInt(24, seed);
+            slots.force();
+            written = true;
+        } finally {
+            channel.close();
+            if (!written) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+    * Give up on the snapshot: close the file without writing the header and
+    * delete it. Call this instead of close when adding the entries failed.
+    */
+    public void abort() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+    * Abort a writer after a failure, adding any error from the abort to the
+    * original one instead of hiding it.
+    *
+    * @param writer The writer to abort.
+    * @param failure What went wrong while adding the entries.
+    */
+    static void abort(SnapshotWriter writer, Throwable failure) {
+        try {
+            writer.abort();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+}
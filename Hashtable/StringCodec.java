@@ -0,0 +1,15 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+* Codec for strings, stored as UTF-8.
+*/
+public class StringCodec implements Codec<String> {
+
+    public byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
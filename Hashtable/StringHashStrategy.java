@@ -0,0 +1,70 @@
+import java.util.Random;
+
+/**
+* Hash strategy for String keys. String.hashCode is cached, but the same
+* code for every table makes it easy to build many strings that collide. This
+* hashes the characters with a per-instance seed instead, two characters at a
+* time, and never calls hashCode.
+*/
+public class StringHashStrategy implements HashStrategy<String> {
+    private static final Random SEEDS = new Random();
+
+    private final int seed;
+
+    /**
+    * Constructor method for a StringHashStrategy with a random seed.
+    */
+    public StringHashStrategy() {
+        this(SEEDS.nextInt());
+    }
+
+    /**
+    * Constructor method for a StringHashStrategy with a fixed seed.
+    *
+    * @param seed The seed mixed into every hash.
+    */
+    public StringHashStrategy(int seed) {
+        this.seed = seed;
+    }
+
+    /**
+    * Hash the characters of the string.
+    *
+    * @param key The string to hash.
+    * @return the mixed hash.
+    */
+    public int hash(String key) {
+        int length = key.length();
+        int h = seed;
+        int i = 0;
+        int k;
+
+        // Two characters at a time
+        for (; i + 2 <= length; i += 2) {
+            k = key.charAt(i) | key.charAt(i + 1) << 16;
+            k *= 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15);
+            k *= 0x1b873593;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+
+        // Last character, if the length is odd
+        if (i < length) {
+            k = key.charAt(i);
+            k *= 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15);
+            k *= 0x1b873593;
+            h ^= k;
+        }
+
+        return SeededHashStrategy.mix(h ^ length);
+    }
+
+    /**
+    * Compare the characters of two strings.
+    */
+    public boolean equals(String a, String b) {
+        return a.equals(b);
+    }
+}
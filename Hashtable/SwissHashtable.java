@@ -0,0 +1,606 @@
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+* Hash table in the style of Google's Swiss table. Slots are split into groups
+* of eight, and every slot has a one-byte control tag: empty, deleted, or the
+* low 7 bits of its key's hash. The tags of a group are packed into a single
+* long, so one array read loads all eight, and a few arithmetic operations on
+* that long (SWAR, SIMD within a register) find every slot whose tag matches.
+* Keys are only compared for those candidates, which is roughly one in 128
+* occupied slots for a key that is not there, so most lookups of a missing key
+* never call equals at all and stop at the first group that has an empty slot.
+*
+* Groups are probed quadratically (1, 2, 3, ... groups apart), which visits
+* every group of a power-of-two table. Removing marks the slot deleted unless
+* its group still has an empty slot, in which case no probe sequence ever
+* went past the group and the slot can simply become empty again.
+*
+* Null keys are not supported, since get returns null for a missing key.
+*/
+public class SwissHashtable<K, V> implements HashtableInterface<K, V> {
+    private static final double DEFAULT_LOAD_FACTOR = 0.875;
+    private static final int MAXIMUM_CAPACITY = 1 << 28;
+    private static final int GROUP_SHIFT = 3;
+    private static final int GROUP_SIZE = 1 << GROUP_SHIFT;
+
+    // Number of keys getAll and addAll hash before probing any of them
+    private static final int BATCH_SIZE = 64;
+
+    // Control tags; a full slot's tag has its high bit clear
+    private static final long EMPTY = 0x80L;
+    private static final long DELETED = 0xfeL;
+
+    // Byte-wise constants for the SWAR tricks
+    private static final long LSBS = 0x0101010101010101L;
+    private static final long MSBS = 0x8080808080808080L;
+    private static final long ALL_EMPTY = EMPTY * LSBS;
+
+    private long[] control;
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+    private int capacity;
+    private int groupMask;
+    private double loadFactor;
+    private int growthLeft;
+    private HashStrategy<? super K> strategy;
+
+    /**
+    * Constructor method for a SwissHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    */
+    public SwissHashtable(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+    * Constructor method for a SwissHashtable.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    */
+    public SwissHashtable(int capacity, double loadFactor) {
+        this(capacity, loadFactor, new SeededHashStrategy<K>());
+    }
+
+    /**
+    * Constructor method for a SwissHashtable that hashes and compares its
+    * keys with the given strategy.
+    *
+    * @param capacity The initial capacity, rounded up to a power of two.
+    * @param loadFactor The load factor that triggers a resize, below 1.
+    * @param strategy The hash strategy for the keys.
+    */
+    public SwissHashtable(int capacity, double loadFactor,
+            HashStrategy<? super K> strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (strategy == null) {
+            throw new NullPointerException("Hash strategy is null");
+        }
+
+        this.loadFactor = loadFactor;
+        this.strategy = strategy;
+        allocate(tableSizeFor(capacity));
+        size = 0;
+    }
+
+    /**
+    * Round the requested capacity up to a power of two of at least one
+    * group. The group index comes from the 25 hash bits above the tag, which
+    * limits the table to 2^25 groups.
+    *
+    * @param capacity The requested capacity.
+    * @return the number of slots to allocate.
+    */
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(GROUP_SIZE, Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+    * Allocate empty slot arrays of the given size, with every tag empty.
+    *
+    * @param newCapacity The number of slots, a power of two.
+    */
+    private void allocate(int newCapacity) {
+        control = new long[newCapacity >>> GROUP_SHIFT];
+        Arrays.fill(control, ALL_EMPTY);
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        capacity = newCapacity;
+        groupMask = (newCapacity >>> GROUP_SHIFT) - 1;
+
+        // Always keep an empty slot, so that every probe sequence ends
+        growthLeft = (int) Math.min(newCapacity * loadFactor, newCapacity - 1);
+    }
+
+    /**
+    * Hash the key with the strategy.
+    */
+    @SuppressWarnings("unchecked")
+    private int hash(Object key) {
+        return strategy.hash((K) key);
+    }
+
+    /**
+    * Hash a key that may be added, rejecting null keys.
+    */
+    private int hashKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("Null keys are not supported");
+        }
+        return hash(key);
+    }
+
+    /**
+    * Check if two keys are the same, as decided by the hash strategy.
+    */
+    @SuppressWarnings("unchecked")
+    private boolean keyEquals(Object a, Object b) {
+        return a == b || strategy.equals((K) a, (K) b);
+    }
+
+    /**
+    * The tag stored for a hash: its low 7 bits.
+    */
+    private static int tag(int hash) {
+        return hash & 0x7f;
+    }
+
+    /**
+    * The first group probed for a hash, taken from the bits above the tag.
+    */
+    private int group(int hash) {
+        return (hash >>> 7) & groupMask;
+    }
+
+    /**
+    * Find the bytes of a group that equal the tag. Each match sets the high
+    * bit of its byte. A byte just above a real match may also be reported
+    * (because of the borrow), which is harmless since keys are compared
+    * anyway.
+    */
+    private static long matchTag(long word, int tag) {
+        long x = word ^ (LSBS * tag);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /**
+    * Find the empty bytes of a group. Only the empty tag has its high bit set
+    * and bit 1 clear; shifting left by 6 moves bit 1 onto bit 7 of the same
+    * byte.
+    */
+    private static long matchEmpty(long word) {
+        return word & (~word << 6) & MSBS;
+    }
+
+    /**
+    * Find the bytes of a group that are empty or deleted.
+    */
+    private static long matchFree(long word) {
+        return word & MSBS;
+    }
+
+    /**
+    * Turn the lowest set match bit into a slot offset within the group.
+    */
+    private static int lowestMatch(long match) {
+        return Long.numberOfTrailingZeros(match) >>> 3;
+    }
+
+    /**
+    * Store a tag in the control byte of a slot.
+    */
+    private void setControl(int slot, long tag) {
+        int shift = (slot & (GROUP_SIZE - 1)) << 3;
+        int group = slot >>> GROUP_SHIFT;
+        control[group] = (control[group] & ~(0xffL << shift)) | (tag << shift);
+    }
+
+    /**
+    * Find the slot holding the key.
+    *
+    * @param hash The hash of the key.
+    * @param key The key to look for.
+    * @return the index of the slot, or -1 if the key is not in the table.
+    */
+    private int find(int hash, Object key) {
+        int tag = tag(hash);
+        int group = group(hash);
+        long word;
+        long match;
+        int slot;
+
+        for (int step = 1; ; step++) {
+            word = control[group];
+
+            // Compare keys only where the tag matches
+            for (match = matchTag(word, tag); match != 0; match &= match - 1) {
+                slot = (group << GROUP_SHIFT) + lowestMatch(match);
+                if (keyEquals(keys[slot], key)) {
+                    return slot;
+                }
+            }
+
+            // The key would have been put in this group if it was missing
+            if (matchEmpty(word) != 0) {
+                return -1;
+            }
+            group = (group + step) & groupMask;
+        }
+    }
+
+    /**
+    * Find the first empty or deleted slot on the probe sequence of a hash.
+    *
+    * @param hash The hash of the key to insert.
+    * @return the index of the free slot.
+    */
+    private int findFree(int hash) {
+        int group = group(hash);
+        long match;
+
+        for (int step = 1; ; step++) {
+            match = matchFree(control[group]);
+            if (match != 0) {
+                return (group << GROUP_SHIFT) + lowestMatch(match);
+            }
+            group = (group + step) & groupMask;
+        }
+    }
+
+    /**
+    * Get the size of the hash table.
+    *
+    * @return the number of key, value pairs.
+    */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+    * Check if the hash table is empty.
+    *
+    * @return true if empty, false otherwise.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Return the value associated with the specified key. O(1) on average.
+    *
+    * @param key The key that pairs to the desired value.
+    * @return the value associated with the key, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int index = find(hash(key), key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+    * Look up a batch of keys. Each block of 64 keys is hashed first, then
+    * the control word of every key's first group is loaded, and only then
+    * are tags matched and keys compared. The loads within each pass do not
+    * depend on each other, so their cache misses overlap.
+    *
+    * @param keys The keys to look up.
+    * @param out Receives the value of keys[i] (or null) at index i.
+    */
+    @SuppressWarnings("unchecked")
+    public void getAll(K[] keys, V[] out) {
+        int length = Math.min(keys.length, BATCH_SIZE);
+        int[] hashes = new int[length];
+        long[] words = new long[length];
+        long match;
+        int slot;
+        K key;
+
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            length = Math.min(BATCH_SIZE, keys.length - start);
+
+            for (int i = 0; i < length; i++) {
+                hashes[i] = hash(keys[start + i]);
+            }
+            for (int i = 0; i < length; i++) {
+                words[i] = control[group(hashes[i])];
+            }
+
+            for (int i = 0; i < length; i++) {
+                key = keys[start + i];
+                slot = -1;
+
+                // Check the first group from the loaded word
+                for (match = matchTag(words[i], tag(hashes[i])); match != 0; match &= match - 1) {
+                    slot = (group(hashes[i]) << GROUP_SHIFT) + lowestMatch(match);
+                    if (keyEquals(this.keys[slot], key)) {
+                        break;
+                    }
+                    slot = -1;
+                }
+
+                // Not in the first group, and the group was full: keep probing
+                if (slot < 0 && matchEmpty(words[i]) == 0) {
+                    slot = find(hashes[i], key);
+                }
+                out[start + i] = slot < 0 ? null : (V) values[slot];
+            }
+        }
+    }
+
+    /**
+    * Add a batch of key, value pairs, in order. The keys of each block of 64
+    * are hashed first, so the loads of the key objects overlap, and are then
+    * added one at a time.
+    *
+    * @param keys The keys to add, none of them null.
+    * @param values The value for keys[i] at index i.
+    */
+    public void addAll(K[] keys, V[] values) {
+        int length = Math.min(keys.length, BATCH_SIZE);
+        int[] hashes = new int[length];
+        int index;
+
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            length = Math.min(BATCH_SIZE, keys.length - start);
+
+            for (int i = 0; i < length; i++) {
+                if (keys[start + i] == null) {
+                    throw new NullPointerException("Null keys are not supported");
+                }
+                hashes[i] = hash(keys[start + i]);
+            }
+
+            for (int i = 0; i < length; i++) {
+                index = find(hashes[i], keys[start + i]);
+                if (index >= 0) {
+                    this.values[index] = values[start + i];
+                }
+                else {
+                    addMissing(hashes[i], keys[start + i], values[start + i]);
+                }
+            }
+        }
+    }
+
+    /**
+    * Adds a key, value pair to the hash table, replacing the old value if the
+    * key is already present. O(1) on average.
+    *
+    * @param key The key, must not be null.
+    * @param value The value to associate with the key.
+    */
+    public void add(K key, V value) {
+        int h = hashKey(key);
+        int index = find(h, key);
+
+        // Key already present, replace old value with new value
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        addMissing(h, key, value);
+    }
+
+    /**
+    * Add a key that is known to be missing, growing the table first if it
+    * has run out of empty slots.
+    */
+    private void addMissing(int hash, Object key, Object value) {
+
+        // Out of empty slots; reusing deleted slots does not need any
+        if (growthLeft == 0 && controlAt(findFree(hash)) == EMPTY) {
+            resize();
+        }
+        insert(hash, key, value);
+        size++;
+    }
+
+    /**
+    * Put a key that is known to be missing into the first free slot of its
+    * probe sequence.
+    */
+    private void insert(int hash, Object key, Object value) {
+        int index = findFree(hash);
+        if (controlAt(index) == EMPTY) {
+            growthLeft--;
+        }
+        setControl(index, tag(hash));
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    /**
+    * Read the control byte of a slot.
+    */
+    private long controlAt(int slot) {
+        return (control[slot >>> GROUP_SHIFT] >>> ((slot & (GROUP_SIZE - 1)) << 3)) & 0xffL;
+    }
+
+    /**
+    * Remove a key, value pair, as identified by the key. O(1) on average.
+    *
+    * @param key The key to identify the pair.
+    * @return the value that was removed, or null if not found.
+    */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int index = find(hash(key), key);
+
+        // Key is not in the table
+        if (index < 0) {
+            return null;
+        }
+
+        V removed = (V) values[index];
+        deleteSlot(index);
+        return removed;
+    }
+
+    /**
+    * Clear a full slot.
+    *
+    * @param index The index of the slot.
+    */
+    private void deleteSlot(int index) {
+        keys[index] = null;
+        values[index] = null;
+        size--;
+
+        // A group with an empty slot never made a probe move on, so the
+        // slot can become empty again instead of leaving a tombstone
+        if (matchEmpty(control[index >>> GROUP_SHIFT]) != 0) {
+            setControl(index, EMPTY);
+            growthLeft++;
+        } else {
+            setControl(index, DELETED);
+        }
+    }
+
+    /**
+    * Store the result of an update in the slot found for the key: replace
+    * the value, add the key if it was missing, or remove it if the result is
+    * null.
+    *
+    * @param index The slot found by find, or -1 if the key is missing.
+    * @return the value stored.
+    */
+    private V update(int index, int hash, K key, V value) {
+        if (value == null) {
+            if (index >= 0) {
+                deleteSlot(index);
+            }
+        }
+        else if (index >= 0) {
+            values[index] = value;
+        }
+        else {
+            addMissing(hash, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        int h = hashKey(key);
+        int index = find(h, key);
+        V old = index < 0 ? null : (V) values[index];
+        if (old == null) {
+            update(index, h, key, value);
+        }
+        return old;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int h = hashKey(key);
+        int index = find(h, key);
+        V value = index < 0 ? null : (V) values[index];
+        if (value == null && (value = mappingFunction.apply(key)) != null) {
+            update(index, h, key, value);
+        }
+        return value;
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    @SuppressWarnings("unchecked")
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int h = hashKey(key);
+        int index = find(h, key);
+        V old = index < 0 ? null : (V) values[index];
+        return update(index, h, key, remappingFunction.apply(key, old));
+    }
+
+    /**
+    * {@inheritDoc} The key is hashed once.
+    */
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int h = hashKey(key);
+        int index = find(h, key);
+        V old = index < 0 ? null : (V) values[index];
+        return update(index, h, key, old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+    * Rebuild the table without tombstones. It doubles in size unless enough
+    * of the used-up slots were only deleted ones, in which case rebuilding
+    * at the same size is enough to make room.
+    */
+    private void resize() {
+        int newCapacity = capacity;
+        if (size >= (capacity * loadFactor) / 2) {
+            if (capacity >= MAXIMUM_CAPACITY) {
+                throw new IllegalStateException("Hash table is full");
+            }
+            newCapacity = capacity * 2;
+        }
+
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(hash(oldKeys[i]), oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+    * Print the control tags and contents of every group.
+    */
+    public void print() {
+        long tag;
+        for (int g = 0; g <= groupMask; g++) {
+            System.out.println("Group " + g + ":");
+            for (int i = g << GROUP_SHIFT; i < (g + 1) << GROUP_SHIFT; i++) {
+                tag = controlAt(i);
+                System.out.println("  Slot " + i + ": "
+                    + (tag == EMPTY ? "empty" : tag == DELETED ? "deleted"
+                        : "tag " + tag + ", " + keys[i] + " -> " + values[i]));
+            }
+        }
+    }
+
+    /**
+    * Performing basic hashtable operations such as insert, lookup, and delete.
+    */
+    public static void main(String[] args) {
+        System.out.println("Instantiating a new swiss hashtable.");
+        SwissHashtable<Integer, String> ht = new SwissHashtable<Integer, String>(8);
+        System.out.println("Size: " + ht.getSize());
+
+        System.out.println("Inserting 3 elements.");
+        ht.add(1, "Hello");
+        ht.add(2, "World");
+        ht.add(9, "Again");
+        System.out.println("Size: " + ht.getSize());
+        ht.print();
+
+        System.out.println("Deleting element with key 2 :).");
+        ht.remove(2);
+        System.out.println("Size: " + ht.getSize());
+        System.out.println("Value for key 9: " + ht.get(9));
+    }
+}
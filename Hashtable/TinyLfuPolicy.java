@@ -0,0 +1,218 @@
+/**
+* Window TinyLFU eviction, which keeps entries that are used often even when
+* a burst of one-off keys comes through. It has three LRU lists:
+*
+* 1. Window: about 1% of the entries. New entries start here, so that recent
+*    entries get a chance to prove themselves.
+* 2. Probation: entries that left the window, or were demoted from protected.
+* 3. Protected: about 80% of the rest. An entry moves here on a hit while it
+*    is on probation.
+*
+* A count-min sketch estimates how often each key has been used lately. When
+* the window is full, its oldest entry moves to probation as a candidate.
+* When the cache then has to evict, the candidate is compared with the
+* oldest entry on probation, and whichever is used less often is evicted. The
+* sketch's counters are halved every so often, so old popularity fades away.
+*/
+public class TinyLfuPolicy<K, V> implements EvictionPolicy<K, V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final CacheEntry<K, V> window;
+    private final CacheEntry<K, V> probation;
+    private final CacheEntry<K, V> protectedList;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private int windowCount;
+    private int protectedCount;
+
+    // Entry that most recently moved from the window to probation
+    private CacheEntry<K, V> candidate;
+
+    private final FrequencySketch sketch;
+
+    /**
+    * Constructor method for a TinyLfuPolicy.
+    *
+    * @param expectedSize The number of entries the cache is expected to hold,
+    * which sizes the window, the protected list and the sketch.
+    */
+    public TinyLfuPolicy(int expectedSize) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+
+        window = sentinel();
+        probation = sentinel();
+        protectedList = sentinel();
+        windowMaximum = Math.max(1, expectedSize / 100);
+        protectedMaximum = Math.max(1, (int) ((expectedSize - windowMaximum) * 0.8));
+        sketch = new FrequencySketch(expectedSize);
+    }
+
+    public void onInsert(CacheEntry<K, V> entry) {
+        sketch.increment(entry.getKey());
+        entry.queue = WINDOW;
+        linkFirst(window, entry);
+        windowCount++;
+
+        // Window is full, its oldest entry tries to get into the main lists
+        if (windowCount > windowMaximum) {
+            candidate = window.prev;
+            unlink(candidate);
+            windowCount--;
+            candidate.queue = PROBATION;
+            linkFirst(probation, candidate);
+        }
+    }
+
+    public void onAccess(CacheEntry<K, V> entry) {
+        sketch.increment(entry.getKey());
+        unlink(entry);
+
+        // Hit on probation, promote to protected
+        if (entry.queue == PROBATION) {
+            entry.queue = PROTECTED;
+            protectedCount++;
+
+            // Protected is full, demote its oldest entry to probation
+            if (protectedCount > protectedMaximum) {
+                CacheEntry<K, V> demoted = protectedList.prev;
+                unlink(demoted);
+                demoted.queue = PROBATION;
+                linkFirst(probation, demoted);
+                protectedCount--;
+            }
+        }
+        linkFirst(listOf(entry), entry);
+    }
+
+    public void onRemove(CacheEntry<K, V> entry) {
+        if (entry == candidate) {
+            candidate = null;
+        }
+        if (entry.queue == WINDOW) {
+            windowCount--;
+        }
+        else if (entry.queue == PROTECTED) {
+            protectedCount--;
+        }
+        unlink(entry);
+    }
+
+    public CacheEntry<K, V> victim() {
+        CacheEntry<K, V> oldest = probation.prev;
+        CacheEntry<K, V> challenger = candidate;
+
+        // Each candidate is compared only once
+        candidate = null;
+
+        // Probation is empty, fall back to protected, then the window
+        if (oldest == probation) {
+            if (protectedList.prev != protectedList) {
+                return protectedList.prev;
+            }
+            return window.prev;
+        }
+
+        // No candidate waiting, or it is the only entry on probation
+        if (challenger == null || challenger.queue != PROBATION || challenger == oldest) {
+            return oldest;
+        }
+
+        // Keep whichever of the two is used more often
+        if (sketch.frequency(challenger.getKey()) > sketch.frequency(oldest.getKey())) {
+            return oldest;
+        }
+        return challenger;
+    }
+
+    private CacheEntry<K, V> listOf(CacheEntry<K, V> entry) {
+        if (entry.queue == WINDOW) {
+            return window;
+        }
+        return entry.queue == PROBATION ? probation : protectedList;
+    }
+
+    private CacheEntry<K, V> sentinel() {
+        CacheEntry<K, V> head = new CacheEntry<K, V>(null, null, 0);
+        head.next = head;
+        head.prev = head;
+        return head;
+    }
+
+    private void linkFirst(CacheEntry<K, V> head, CacheEntry<K, V> entry) {
+        entry.prev = head;
+        entry.next = head.next;
+        head.next.prev = entry;
+        head.next = entry;
+    }
+
+    private void unlink(CacheEntry<K, V> entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    /**
+    * Count-min sketch of 4-bit counters (kept in bytes), four rows deep. A
+    * key's frequency is the smallest of its four counters, which is an
+    * overestimate only when every one of them collides with other keys.
+    */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAXIMUM_COUNT = 15;
+
+        private final byte[] counters;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedSize) {
+            width = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize - 1)) << 1);
+            counters = new byte[DEPTH * width];
+            sampleSize = 10 * width;
+        }
+
+        /**
+        * Get the counter index of a key in the given row.
+        */
+        private int indexOf(int hash, int row) {
+            int h = SeededHashStrategy.mix(hash + row * 0x9e3779b9);
+            return row * width + (h & (width - 1));
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+
+            for (int row = 0; row < DEPTH; row++) {
+                int i = indexOf(hash, row);
+                if (counters[i] < MAXIMUM_COUNT) {
+                    counters[i]++;
+                    added = true;
+                }
+            }
+
+            // Age the counters once enough samples have been seen
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (byte) (counters[i] >>> 1);
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAXIMUM_COUNT;
+
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+    }
+}
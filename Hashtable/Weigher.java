@@ -0,0 +1,11 @@
+/**
+* Computes the weight of a cache entry, for caches bounded by total weight
+* rather than number of entries.
+*/
+public interface Weigher<K, V> {
+
+	/**
+	* Get the weight of an entry. Must not be negative.
+	*/
+	int weigh(K key, V value);
+}
@@ -0,0 +1,401 @@
+/**
+* Self-balancing binary search tree. After every insert and delete, the nodes
+* on the path back up to the root are checked, and any node whose subtrees
+* differ in height by more than one is fixed with one or two rotations. The
+* tree's height then stays below 1.44 log2(n), so insert, delete and contains
+* are O(log n) in the worst case, even when the data arrives already sorted.
+* The recursion is only as deep as the tree, so it cannot overflow the stack.
+*
+* Every node also knows the size of its subtree, which is kept up to date by
+* the same pass that fixes heights. That gives order statistics in O(log n):
+* the rank of an item, the item at a given rank, and the number of items in
+* a range, without walking the items themselves.
+*/
+public class AVLTree<T extends Comparable<? super T>> implements BSTInterface<T> {
+	private Node<T> root;
+
+	/**
+	* Clear the tree.
+	*/
+	public void clear() {
+		root = null;
+	}
+
+	/**
+	* Check if the tree is empty.
+	*
+	* @return true if empty, false otherwise.
+	*/
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	* Get the number of items in the tree.
+	*
+	* @return the number of items.
+	*/
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	* Get the height of the tree, the number of nodes on its longest path.
+	*
+	* @return the height, 0 if empty.
+	*/
+	public int getHeight() {
+		return height(root);
+	}
+
+	/**
+	* Insert an item into the tree. O(log n).
+	*
+	* @param data The item to insert.
+	*/
+	public void insert(T data) {
+		root = insert(root, data);
+	}
+
+	/**
+	* Helper function for insert.
+	*
+	* @param curr The root of the subtree to insert into.
+	* @param data The data to insert.
+	*
+	* @return the new root of the subtree.
+	*/
+	private Node<T> insert(Node<T> curr, T data) {
+
+		// Reached the bottom, insert here
+		if (curr == null) {
+			return new Node<T>(data);
+		}
+
+		int cmp = data.compareTo(curr.data);
+
+		// Data to insert is already in tree
+		if (cmp == 0) {
+			return curr;
+		}
+
+		// Go left or right
+		if (cmp < 0) {
+			curr.left = insert(curr.left, data);
+		}
+		else {
+			curr.right = insert(curr.right, data);
+		}
+
+		return rebalance(curr);
+	}
+
+	/**
+	* Delete an item from the tree. O(log n).
+	*
+	* @param data The item to delete.
+	*/
+	public void delete(T data) {
+		root = delete(root, data);
+	}
+
+	/**
+	* Helper function for delete. A node with two children is replaced by the
+	* largest node in its left subtree, which is then deleted from there.
+	*
+	* @param curr The root of the subtree to delete from.
+	* @param data The data to delete.
+	*
+	* @return the new root of the subtree.
+	*/
+	private Node<T> delete(Node<T> curr, T data) {
+
+		// Data is not in the tree
+		if (curr == null) {
+			return null;
+		}
+
+		int cmp = data.compareTo(curr.data);
+
+		if (cmp < 0) {
+			curr.left = delete(curr.left, data);
+		}
+		else if (cmp > 0) {
+			curr.right = delete(curr.right, data);
+		}
+
+		// Found node to delete, with at most one child
+		else if (curr.left == null || curr.right == null) {
+			return curr.left != null ? curr.left : curr.right;
+		}
+
+		// Found node to delete, with two children
+		else {
+			Node<T> max = curr.left;
+			while (max.right != null) {
+				max = max.right;
+			}
+			curr.data = max.data;
+			curr.left = delete(curr.left, max.data);
+		}
+
+		return rebalance(curr);
+	}
+
+	/**
+	* Check if the tree contains the specified data. O(log n).
+	*
+	* @param data The data to check for.
+	*
+	* @return true if found, false otherwise.
+	*/
+	public boolean contains(T data) {
+		Node<T> curr = root;
+		int cmp;
+
+		while (curr != null) {
+			cmp = data.compareTo(curr.data);
+			if (cmp == 0) {
+				return true;
+			}
+			curr = cmp < 0 ? curr.left : curr.right;
+		}
+		return false;
+	}
+
+	/**
+	* Count the items smaller than the given one. O(log n).
+	*
+	* @param data The item, which does not need to be in the tree.
+	*
+	* @return the number of smaller items, which is the item's index in
+	* sorted order if it is in the tree.
+	*/
+	public int rank(T data) {
+		return countBelow(data, false);
+	}
+
+	/**
+	* Get the item at the given index in sorted order. O(log n).
+	*
+	* @param k The index, from 0 for the smallest item to getSize() - 1 for
+	* the largest.
+	*
+	* @return the k-th smallest item.
+	*/
+	public T select(int k) {
+		if (k < 0 || k >= size(root)) {
+			throw new IndexOutOfBoundsException("Index: " + k + ", size: " + size(root));
+		}
+
+		Node<T> curr = root;
+		int leftSize;
+
+		while (true) {
+			leftSize = size(curr.left);
+
+			// The item is in the left subtree
+			if (k < leftSize) {
+				curr = curr.left;
+			}
+
+			// The item is here
+			else if (k == leftSize) {
+				return curr.data;
+			}
+
+			// The item is in the right subtree, skip the left one and curr
+			else {
+				k -= leftSize + 1;
+				curr = curr.right;
+			}
+		}
+	}
+
+	/**
+	* Count the items between lo and hi, both included. O(log n).
+	*
+	* @param lo The lower bound.
+	* @param hi The upper bound.
+	*
+	* @return the number of items x with lo <= x <= hi.
+	*/
+	public int countBetween(T lo, T hi) {
+		if (lo.compareTo(hi) > 0) {
+			return 0;
+		}
+		return countBelow(hi, true) - countBelow(lo, false);
+	}
+
+	/**
+	* Count the items smaller than the given one, or smaller or equal. Every
+	* time the search goes right, the left subtree and the node itself are
+	* all smaller.
+	*
+	* @param data The item to compare with.
+	* @param inclusive Whether to count an item equal to data.
+	*
+	* @return the number of items found.
+	*/
+	private int countBelow(T data, boolean inclusive) {
+		Node<T> curr = root;
+		int count = 0;
+		int cmp;
+
+		while (curr != null) {
+			cmp = data.compareTo(curr.data);
+			if (cmp < 0) {
+				curr = curr.left;
+			}
+			else if (cmp > 0) {
+				count += size(curr.left) + 1;
+				curr = curr.right;
+			}
+			else {
+				return count + size(curr.left) + (inclusive ? 1 : 0);
+			}
+		}
+		return count;
+	}
+
+	/**
+	* Get the height of a subtree, 0 for an empty one.
+	*/
+	private int height(Node<T> curr) {
+		return curr == null ? 0 : curr.height;
+	}
+
+	/**
+	* Get the number of items in a subtree, 0 for an empty one.
+	*/
+	private int size(Node<T> curr) {
+		return curr == null ? 0 : curr.size;
+	}
+
+	/**
+	* Recompute a node's height and subtree size from its children.
+	*/
+	private void update(Node<T> curr) {
+		curr.height = 1 + Math.max(height(curr.left), height(curr.right));
+		curr.size = 1 + size(curr.left) + size(curr.right);
+	}
+
+	/**
+	* Restore the balance of a node whose subtrees may differ in height by
+	* two after an insert or delete below it.
+	*
+	* @param curr The node to check.
+	*
+	* @return the new root of the subtree.
+	*/
+	private Node<T> rebalance(Node<T> curr) {
+		int balance = height(curr.left) - height(curr.right);
+
+		// Left side is too tall
+		if (balance > 1) {
+
+			// Left child leans right, turn it into a left-left case first
+			if (height(curr.left.left) < height(curr.left.right)) {
+				curr.left = rotateLeft(curr.left);
+			}
+			return rotateRight(curr);
+		}
+
+		// Right side is too tall
+		if (balance < -1) {
+			if (height(curr.right.right) < height(curr.right.left)) {
+				curr.right = rotateRight(curr.right);
+			}
+			return rotateLeft(curr);
+		}
+
+		update(curr);
+		return curr;
+	}
+
+	/**
+	* Rotate right: the left child becomes the root of the subtree.
+	*/
+	private Node<T> rotateRight(Node<T> curr) {
+		Node<T> left = curr.left;
+		curr.left = left.right;
+		left.right = curr;
+		update(curr);
+		update(left);
+		return left;
+	}
+
+	/**
+	* Rotate left: the right child becomes the root of the subtree.
+	*/
+	private Node<T> rotateLeft(Node<T> curr) {
+		Node<T> right = curr.right;
+		curr.right = right.left;
+		right.left = curr;
+		update(curr);
+		update(right);
+		return right;
+	}
+
+	/**
+	* Inorder traversal of the tree, printing the items in sorted order.
+	*/
+	public void inOrderTraversal() {
+		inOrderTraversal(root);
+	}
+
+	/**
+	* Helper function for inorder traversal.
+	*
+	* @param curr The current node.
+	*/
+	private void inOrderTraversal(Node<T> curr) {
+		if (curr == null) {
+			return;
+		}
+		inOrderTraversal(curr.left);
+		System.out.println(curr.data);
+		inOrderTraversal(curr.right);
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Instantiating an AVL tree.");
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+
+		System.out.println("Inserting 1 to 7 in sorted order.");
+		for (int i = 1; i <= 7; i++) {
+			tree.insert(i);
+		}
+		System.out.println("Height: " + tree.getHeight());
+		System.out.println("Inorder Traversal:");
+		tree.inOrderTraversal();
+
+		System.out.println("Inserting 1 to 1000000 in sorted order.");
+		for (int i = 1; i <= 1000000; i++) {
+			tree.insert(i);
+		}
+		System.out.println("Size: " + tree.getSize() + ", height: " + tree.getHeight());
+
+		System.out.println("Rank of 250000: " + tree.rank(250000));
+		System.out.println("90th percentile: " + tree.select(tree.getSize() * 9 / 10));
+		System.out.println("Items between 1000 and 1999: " + tree.countBetween(1000, 1999));
+	}
+
+	/**
+	* The AVL tree node. Holds the left and right node, and the height and
+	* number of nodes of its subtree.
+	*/
+	static class Node<T> {
+		T data;
+		Node<T> left;
+		Node<T> right;
+		int height;
+		int size;
+
+		Node(T data) {
+			this.data = data;
+			this.height = 1;
+			this.size = 1;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+* Times insert and contains on each tree, for keys that arrive in sorted,
+* reverse sorted and random order, at a few tree sizes. A balanced tree keeps
+* the time per operation nearly flat as the tree grows, whatever the order.
+* An unbalanced one turns into a linked list on sorted input: its time per
+* operation grows linearly with the size, and its recursion eventually
+* overflows the stack, which is reported instead of a time.
+*/
+public class BSTBenchmark {
+	private static final int[] SIZES = {2000, 8000, 32000, 128000};
+	private static final int ROUNDS = 3;
+
+	/**
+	* Build the keys 0 to n - 1 in the given order.
+	*
+	* @param order One of "sorted", "reverse" or "random".
+	* @param n The number of keys.
+	*
+	* @return the keys.
+	*/
+	private static Integer[] keys(String order, int n) {
+		List<Integer> keys = new ArrayList<Integer>(n);
+		for (int i = 0; i < n; i++) {
+			keys.add(i);
+		}
+
+		if (order.equals("reverse")) {
+			Collections.reverse(keys);
+		}
+		else if (order.equals("random")) {
+			Collections.shuffle(keys, new Random(42));
+		}
+		return keys.toArray(new Integer[n]);
+	}
+
+	/**
+	* Insert all keys into a new tree, then look each of them up, and print
+	* the average time per operation of the fastest round.
+	*
+	* @param name The name of the tree.
+	* @param factory Creates an empty tree.
+	* @param order The order of the keys.
+	* @param keys The keys.
+	*/
+	private static void run(String name, Supplier<BSTInterface<Integer>> factory,
+			String order, Integer[] keys) {
+		long bestInsert = Long.MAX_VALUE;
+		long bestContains = Long.MAX_VALUE;
+		long start;
+		BSTInterface<Integer> tree;
+
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				tree = factory.get();
+
+				start = System.nanoTime();
+				for (Integer key : keys) {
+					tree.insert(key);
+				}
+				bestInsert = Math.min(bestInsert, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for (Integer key : keys) {
+					if (!tree.contains(key)) {
+						throw new IllegalStateException(name + " lost key " + key);
+					}
+				}
+				bestContains = Math.min(bestContains, System.nanoTime() - start);
+			}
+		}
+		catch (StackOverflowError e) {
+			System.out.printf("%-12s %-8s n=%-7d stack overflow%n", name, order, keys.length);
+			return;
+		}
+
+		System.out.printf("%-12s %-8s n=%-7d insert %7d ns/op   contains %7d ns/op%n",
+			name, order, keys.length, bestInsert / keys.length, bestContains / keys.length);
+	}
+
+	public static void main(String[] args) {
+		List<String> names = new ArrayList<String>();
+		List<Supplier<BSTInterface<Integer>>> factories =
+			new ArrayList<Supplier<BSTInterface<Integer>>>();
+
+		names.add("RecursiveBST");
+		factories.add(RecursiveBST::new);
+		names.add("AVLTree");
+		factories.add(AVLTree::new);
+		names.add("BTree");
+		factories.add(BTree::new);
+		names.add("SkipList");
+		factories.add(LockFreeSkipList::new);
+
+		for (String order : new String[] {"sorted", "reverse", "random"}) {
+			for (int n : SIZES) {
+				Integer[] keys = keys(order, n);
+				for (int i = 0; i < names.size(); i++) {
+					run(names.get(i), factories.get(i), order, keys);
+				}
+			}
+			System.out.println();
+		}
+	}
+}
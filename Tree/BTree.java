@@ -0,0 +1,488 @@
+/**
+* B-tree: a balanced search tree whose nodes hold many keys instead of one.
+* The keys of a node are kept in a sorted array and searched with binary
+* search, and a node with k keys has k + 1 children, one for each gap between
+* its keys. With a fanout of 32 a tree of 100 million keys is only 6 levels
+* deep, so a lookup follows 6 pointers instead of the 27 or so of a binary
+* tree, and the key references it compares sit next to each other in memory.
+* There is also one node object per 16 to 31 keys instead of one per key.
+*
+* Every node except the root holds between fanout / 2 - 1 and fanout - 1
+* keys. Insert splits full nodes on the way down and delete tops up
+* minimal nodes on the way down (both as in Cormen et al.), so each makes a
+* single pass from the root and the tree stays perfectly balanced: all leaves
+* are at the same depth.
+*/
+public class BTree<T extends Comparable<? super T>> implements BSTInterface<T> {
+	private static final int DEFAULT_FANOUT = 32;
+
+	private final int minDegree;
+	private final int maxKeys;
+	private Node root;
+	private int size;
+
+	/**
+	* Constructor method for a BTree with the default fanout.
+	*/
+	public BTree() {
+		this(DEFAULT_FANOUT);
+	}
+
+	/**
+	* Constructor method for a BTree.
+	*
+	* @param fanout The largest number of children of a node, at least 4.
+	* Odd values are rounded down.
+	*/
+	public BTree(int fanout) {
+		if (fanout < 4) {
+			throw new IllegalArgumentException("Illegal fanout: " + fanout);
+		}
+
+		minDegree = fanout / 2;
+		maxKeys = 2 * minDegree - 1;
+		root = new Node(true);
+	}
+
+	/**
+	* Clear the tree.
+	*/
+	public void clear() {
+		root = new Node(true);
+		size = 0;
+	}
+
+	/**
+	* Check if the tree is empty.
+	*
+	* @return true if empty, false otherwise.
+	*/
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	* Get the number of keys in the tree.
+	*
+	* @return the number of keys.
+	*/
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	* Get the height of the tree, the number of nodes from the root to any
+	* leaf.
+	*
+	* @return the height.
+	*/
+	public int getHeight() {
+		int height = 1;
+		for (Node curr = root; !curr.leaf; curr = curr.children[0]) {
+			height++;
+		}
+		return height;
+	}
+
+	/**
+	* Binary search for a key within a node.
+	*
+	* @param node The node to search.
+	* @param data The key to look for.
+	*
+	* @return the index of the key, or -(i + 1) where i is the index of the
+	* child whose subtree would hold it.
+	*/
+	@SuppressWarnings("unchecked")
+	private int search(Node node, T data) {
+		int lo = 0;
+		int hi = node.count - 1;
+		int mid;
+		int cmp;
+
+		while (lo <= hi) {
+			mid = (lo + hi) >>> 1;
+			cmp = ((T) node.keys[mid]).compareTo(data);
+			if (cmp < 0) {
+				lo = mid + 1;
+			}
+			else if (cmp > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+
+	/**
+	* Check if the tree contains the specified key. O(log n).
+	*
+	* @param data The key to check for.
+	*
+	* @return true if found, false otherwise.
+	*/
+	public boolean contains(T data) {
+		Node curr = root;
+		int i;
+
+		while (true) {
+			i = search(curr, data);
+			if (i >= 0) {
+				return true;
+			}
+			if (curr.leaf) {
+				return false;
+			}
+			curr = curr.children[-(i + 1)];
+		}
+	}
+
+	/**
+	* Insert a key into the tree. O(log n).
+	*
+	* @param data The key to insert.
+	*/
+	public void insert(T data) {
+
+		// Root is full, so the tree grows a level at the top
+		if (root.count == maxKeys) {
+			Node newRoot = new Node(false);
+			newRoot.children[0] = root;
+			root = newRoot;
+			split(newRoot, 0);
+		}
+
+		Node curr = root;
+		int i;
+
+		while (true) {
+			i = search(curr, data);
+
+			// Key is already in the tree
+			if (i >= 0) {
+				return;
+			}
+			i = -(i + 1);
+
+			// Reached a leaf, which is known not to be full
+			if (curr.leaf) {
+				System.arraycopy(curr.keys, i, curr.keys, i + 1, curr.count - i);
+				curr.keys[i] = data;
+				curr.count++;
+				size++;
+				return;
+			}
+
+			// Split a full child before going down, so there is room for a
+			// key coming up from below
+			if (curr.children[i].count == maxKeys) {
+				split(curr, i);
+				int cmp = data.compareTo(key(curr, i));
+				if (cmp == 0) {
+					return;
+				}
+				if (cmp > 0) {
+					i++;
+				}
+			}
+			curr = curr.children[i];
+		}
+	}
+
+	/**
+	* Split the full child i of a node in two. The child's middle key moves up
+	* into the parent, between the two halves.
+	*
+	* @param parent A node that is not full.
+	* @param i The index of the full child.
+	*/
+	private void split(Node parent, int i) {
+		Node left = parent.children[i];
+		Node right = new Node(left.leaf);
+		int t = minDegree;
+
+		// The upper t - 1 keys (and t children) go to the new right node
+		System.arraycopy(left.keys, t, right.keys, 0, t - 1);
+		if (!left.leaf) {
+			System.arraycopy(left.children, t, right.children, 0, t);
+		}
+		right.count = t - 1;
+
+		// Make room in the parent for the middle key and the new child
+		System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.count - i);
+		System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.count - i);
+		parent.keys[i] = left.keys[t - 1];
+		parent.children[i + 1] = right;
+		parent.count++;
+
+		// Clear the moved slots so they do not keep objects alive
+		for (int j = t - 1; j < left.count; j++) {
+			left.keys[j] = null;
+		}
+		if (!left.leaf) {
+			for (int j = t; j <= left.count; j++) {
+				left.children[j] = null;
+			}
+		}
+		left.count = t - 1;
+	}
+
+	/**
+	* Delete a key from the tree. O(log n).
+	*
+	* @param data The key to delete.
+	*/
+	public void delete(T data) {
+		delete(root, data);
+
+		// Root ran out of keys, its only child becomes the root
+		if (root.count == 0 && !root.leaf) {
+			root = root.children[0];
+		}
+	}
+
+	/**
+	* Helper function for delete. Every node it is called on, other than the
+	* root, has at least minDegree keys, so a key can be taken out of it
+	* without it becoming too small.
+	*
+	* @param curr The root of the subtree to delete from.
+	* @param data The key to delete.
+	*/
+	private void delete(Node curr, T data) {
+		int t = minDegree;
+		int i = search(curr, data);
+
+		// Key is in this node
+		if (i >= 0) {
+
+			// In a leaf, just remove it
+			if (curr.leaf) {
+				System.arraycopy(curr.keys, i + 1, curr.keys, i, curr.count - i - 1);
+				curr.keys[--curr.count] = null;
+				size--;
+				return;
+			}
+
+			// Replace it with its predecessor, if the left child can spare one
+			Node left = curr.children[i];
+			Node right = curr.children[i + 1];
+			if (left.count >= t) {
+				T predecessor = max(left);
+				curr.keys[i] = predecessor;
+				delete(left, predecessor);
+			}
+
+			// Or with its successor, if the right child can spare one
+			else if (right.count >= t) {
+				T successor = min(right);
+				curr.keys[i] = successor;
+				delete(right, successor);
+			}
+
+			// Both children are minimal: merge them around the key, then
+			// delete it from the merged node
+			else {
+				merge(curr, i);
+				delete(left, data);
+			}
+			return;
+		}
+
+		// Key is not in the tree
+		if (curr.leaf) {
+			return;
+		}
+
+		// Make sure the child we go down into can spare a key
+		i = -(i + 1);
+		Node child = curr.children[i];
+		if (child.count < t) {
+			if (i > 0 && curr.children[i - 1].count >= t) {
+				borrowFromLeft(curr, i);
+			}
+			else if (i < curr.count && curr.children[i + 1].count >= t) {
+				borrowFromRight(curr, i);
+			}
+			else if (i < curr.count) {
+				merge(curr, i);
+			}
+			else {
+				merge(curr, i - 1);
+				child = curr.children[i - 1];
+			}
+		}
+		delete(child, data);
+	}
+
+	/**
+	* Get the largest key of a subtree.
+	*/
+	private T max(Node curr) {
+		while (!curr.leaf) {
+			curr = curr.children[curr.count];
+		}
+		return key(curr, curr.count - 1);
+	}
+
+	/**
+	* Get the smallest key of a subtree.
+	*/
+	private T min(Node curr) {
+		while (!curr.leaf) {
+			curr = curr.children[0];
+		}
+		return key(curr, 0);
+	}
+
+	/**
+	* Merge child i + 1 of a node and the key between them into child i.
+	* Both children have minDegree - 1 keys, so the result is full.
+	*
+	* @param parent The parent of the two children.
+	* @param i The index of the left child.
+	*/
+	private void merge(Node parent, int i) {
+		Node left = parent.children[i];
+		Node right = parent.children[i + 1];
+
+		left.keys[left.count] = parent.keys[i];
+		System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+		if (!left.leaf) {
+			System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+		}
+		left.count += right.count + 1;
+
+		// Take the key and the right child out of the parent
+		System.arraycopy(parent.keys, i + 1, parent.keys, i, parent.count - i - 1);
+		System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.count - i - 1);
+		parent.count--;
+		parent.keys[parent.count] = null;
+		parent.children[parent.count + 1] = null;
+	}
+
+	/**
+	* Move a key from child i - 1 through the parent into child i.
+	*/
+	private void borrowFromLeft(Node parent, int i) {
+		Node child = parent.children[i];
+		Node sibling = parent.children[i - 1];
+
+		// Make room at the front of the child
+		System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+		if (!child.leaf) {
+			System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+		}
+
+		// Parent's key comes down, sibling's last key goes up
+		child.keys[0] = parent.keys[i - 1];
+		if (!child.leaf) {
+			child.children[0] = sibling.children[sibling.count];
+			sibling.children[sibling.count] = null;
+		}
+		parent.keys[i - 1] = sibling.keys[sibling.count - 1];
+		sibling.keys[sibling.count - 1] = null;
+		sibling.count--;
+		child.count++;
+	}
+
+	/**
+	* Move a key from child i + 1 through the parent into child i.
+	*/
+	private void borrowFromRight(Node parent, int i) {
+		Node child = parent.children[i];
+		Node sibling = parent.children[i + 1];
+
+		// Parent's key comes down, sibling's first key goes up
+		child.keys[child.count] = parent.keys[i];
+		if (!child.leaf) {
+			child.children[child.count + 1] = sibling.children[0];
+		}
+		child.count++;
+		parent.keys[i] = sibling.keys[0];
+
+		// Close the gap at the front of the sibling
+		System.arraycopy(sibling.keys, 1, sibling.keys, 0, sibling.count - 1);
+		if (!sibling.leaf) {
+			System.arraycopy(sibling.children, 1, sibling.children, 0, sibling.count);
+			sibling.children[sibling.count] = null;
+		}
+		sibling.count--;
+		sibling.keys[sibling.count] = null;
+	}
+
+	/**
+	* Read a key of a node.
+	*/
+	@SuppressWarnings("unchecked")
+	private T key(Node node, int i) {
+		return (T) node.keys[i];
+	}
+
+	/**
+	* Inorder traversal of the tree, printing the keys in sorted order.
+	*/
+	public void inOrderTraversal() {
+		inOrderTraversal(root);
+	}
+
+	/**
+	* Helper function for inorder traversal: each child, then the key after
+	* it.
+	*
+	* @param curr The current node.
+	*/
+	private void inOrderTraversal(Node curr) {
+		for (int i = 0; i < curr.count; i++) {
+			if (!curr.leaf) {
+				inOrderTraversal(curr.children[i]);
+			}
+			System.out.println(curr.keys[i]);
+		}
+		if (!curr.leaf) {
+			inOrderTraversal(curr.children[curr.count]);
+		}
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Instantiating a B-tree with fanout 4.");
+		BTree<Integer> tree = new BTree<Integer>(4);
+		for (int i = 1; i <= 10; i++) {
+			tree.insert(i);
+		}
+		System.out.println("Size: " + tree.getSize() + ", height: " + tree.getHeight());
+		System.out.println("Deleting 1 to 5.");
+		for (int i = 1; i <= 5; i++) {
+			tree.delete(i);
+		}
+		System.out.println("Inorder Traversal:");
+		tree.inOrderTraversal();
+
+		System.out.println("Inserting 1 to 1000000 into a B-tree with fanout 32.");
+		tree = new BTree<Integer>();
+		for (int i = 1; i <= 1000000; i++) {
+			tree.insert(i);
+		}
+		System.out.println("Size: " + tree.getSize() + ", height: " + tree.getHeight());
+	}
+
+	/**
+	* A B-tree node: count sorted keys and, unless it is a leaf, count + 1
+	* children. The arrays are allocated at full size once.
+	*/
+	class Node {
+		final Object[] keys;
+		final Node[] children;
+		final boolean leaf;
+		int count;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Node(boolean leaf) {
+			this.leaf = leaf;
+			this.keys = new Object[maxKeys];
+			this.children = leaf ? null : new BTree.Node[maxKeys + 1];
+		}
+	}
+}
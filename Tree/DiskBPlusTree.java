@@ -0,0 +1,995 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+* B+tree of long keys stored in a file, for sets too large for the heap. The
+* file is a sequence of 4 KB pages, memory-mapped in 64 MB regions. Page 0
+* holds the root page number and the other fields of the tree; every other
+* page is an internal node, a leaf, or free. Internal nodes hold up to 340
+* keys and 341 child page numbers; leaves hold up to 510 keys and the page
+* number of the next leaf, so a range scan walks along the leaves without
+* going back up the tree.
+*
+* Pages are never changed in the mapping directly. A page that is about to
+* change is decoded into a Node on the heap and stays there, dirty, until
+* commit, which works like a redo log:
+*
+* 1. Every dirty page, and page 0, is appended to the write-ahead log (the
+*    file with ".wal" added to its name), followed by a trailer with a
+*    checksum. The log is forced to disk.
+* 2. The pages are copied into the mapping, which is forced to disk.
+* 3. The log is emptied.
+*
+* A crash before step 1 completes leaves the file as of the last commit and
+* a log with a bad trailer, which is ignored. A crash after it leaves a
+* complete log, which is copied into the file again on the next open. Either
+* way the tree is never seen half-changed. Commits also happen automatically
+* when too many pages are dirty, and on close; changes since the last
+* commit are lost in a crash.
+*
+* Opening reads page 0 and replays the log, if any, so it does not depend on
+* the size of the tree. Clean pages that were read recently are kept decoded
+* in an LRU cache, which holds the upper levels of the tree in practice. Page
+* reads that miss it are served by the operating system's page cache.
+*/
+public class DiskBPlusTree implements BSTInterface<Long>, Iterable<Long>, Closeable {
+	static final int PAGE_SIZE = 4096;
+	private static final int MAGIC = 0x42505431;
+	private static final int WAL_MAGIC = 0x57414c31;
+	private static final int VERSION = 1;
+	private static final int REGION_PAGES = 1 << 14;
+	private static final long REGION_SIZE = (long) REGION_PAGES * PAGE_SIZE;
+
+	// Page types
+	private static final int LEAF = 1;
+	private static final int INTERNAL = 2;
+
+	// Leaf: [type][count][next leaf][unused][keys]
+	private static final int LEAF_HEADER = 16;
+	static final int LEAF_CAPACITY = (PAGE_SIZE - LEAF_HEADER) / 8;
+
+	// Internal node: [type][count][keys][children]
+	private static final int INTERNAL_HEADER = 8;
+	static final int INTERNAL_CAPACITY = (PAGE_SIZE - INTERNAL_HEADER - 4) / 12;
+	private static final int INTERNAL_CHILDREN = INTERNAL_HEADER + 8 * INTERNAL_CAPACITY;
+
+	// Log record: [page number][page]; trailer: [magic][record count][crc]
+	private static final int WAL_RECORD_SIZE = 4 + PAGE_SIZE;
+	private static final int WAL_TRAILER_SIZE = 12;
+
+	private static final int DEFAULT_CACHE_PAGES = 1024;
+	private static final int MAX_DIRTY_PAGES = 4096;
+
+	private final Path walPath;
+	private final FileChannel channel;
+	private final FileChannel wal;
+	private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+
+	// Pages changed since the last commit, and recently read clean pages
+	private final Map<Integer, Node> dirty = new HashMap<Integer, Node>();
+	private final LinkedHashMap<Integer, Node> cache;
+
+	// Contents of page 0
+	private int root;
+	private int height;
+	private int pageCount;
+	private int freeHead;
+	private long size;
+
+	/**
+	* Open a tree file, or create an empty tree if the file does not exist
+	* or is empty.
+	*
+	* @param path The tree file.
+	*/
+	public DiskBPlusTree(Path path) throws IOException {
+		this(path, DEFAULT_CACHE_PAGES);
+	}
+
+	/**
+	* Open a tree file, or create an empty tree if the file does not exist
+	* or is empty.
+	*
+	* @param path The tree file.
+	* @param cachePages The number of clean pages to keep decoded on the heap.
+	*/
+	public DiskBPlusTree(Path path, final int cachePages) throws IOException {
+		if (cachePages < 0) {
+			throw new IllegalArgumentException("Illegal cache size: " + cachePages);
+		}
+
+		cache = new LinkedHashMap<Integer, Node>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+				return size() > cachePages;
+			}
+		};
+
+		walPath = Paths.get(path + ".wal");
+		channel = FileChannel.open(path, StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			wal = FileChannel.open(walPath, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		try {
+			recover();
+			if (region(0).getInt(0) == 0) {
+				initialize();
+			}
+			else {
+				readMeta(path);
+			}
+		} catch (IOException e) {
+			wal.close();
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	* Write an empty tree into a new file: page 0, and an empty leaf as the
+	* root.
+	*/
+	private void initialize() throws IOException {
+		root = 1;
+		height = 1;
+		pageCount = 2;
+		freeHead = 0;
+		size = 0;
+		dirty.put(root, new Node(true));
+		commit();
+	}
+
+	/**
+	* Read the fields of the tree from page 0.
+	*/
+	private void readMeta(Path path) throws IOException {
+		ByteBuffer meta = region(0);
+
+		if (meta.getInt(0) != MAGIC || meta.getInt(4) != VERSION
+				|| meta.getInt(8) != PAGE_SIZE) {
+			throw new IOException("Not a B+tree file: " + path);
+		}
+		root = meta.getInt(12);
+		height = meta.getInt(16);
+		pageCount = meta.getInt(20);
+		freeHead = meta.getInt(24);
+		size = meta.getLong(32);
+	}
+
+	/**
+	* Write the fields of the tree into a page.
+	*/
+	private void writeMeta(ByteBuffer buf, int base) {
+		buf.putInt(base, MAGIC);
+		buf.putInt(base + 4, VERSION);
+		buf.putInt(base + 8, PAGE_SIZE);
+		buf.putInt(base + 12, root);
+		buf.putInt(base + 16, height);
+		buf.putInt(base + 20, pageCount);
+		buf.putInt(base + 24, freeHead);
+		buf.putLong(base + 32, size);
+	}
+
+	/**
+	* Clear the tree. The pages of the old tree are not visited, the file
+	* just starts over from page 2.
+	*/
+	public void clear() {
+		dirty.clear();
+		cache.clear();
+		root = 1;
+		height = 1;
+		pageCount = 2;
+		freeHead = 0;
+		size = 0;
+		dirty.put(root, new Node(true));
+	}
+
+	/**
+	* Check if the tree is empty.
+	*
+	* @return true if empty, false otherwise.
+	*/
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	* Get the number of keys in the tree.
+	*
+	* @return the number of keys.
+	*/
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	* Get the height of the tree, the number of pages from the root to any
+	* leaf.
+	*
+	* @return the height.
+	*/
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	* Check if the tree contains the specified key. Reads one page per level.
+	*
+	* @param data The key to check for.
+	*
+	* @return true if found, false otherwise.
+	*/
+	public boolean contains(Long data) {
+		long key = data;
+		Node node = read(root);
+
+		while (!node.leaf) {
+			node = read(node.children[childIndex(node, key)]);
+		}
+		return Arrays.binarySearch(node.keys, 0, node.count, key) >= 0;
+	}
+
+	/**
+	* Insert a key into the tree. A full leaf is split in two and the first
+	* key of the new right half goes up into the parent, which may split in
+	* turn.
+	*
+	* @param data The key to insert.
+	*/
+	public void insert(Long data) {
+		long key = data;
+		int[] path = new int[height];
+		int[] index = new int[height];
+		int page = descend(key, path, index);
+		Node leaf = read(page);
+		int pos = Arrays.binarySearch(leaf.keys, 0, leaf.count, key);
+
+		// Key is already in the tree
+		if (pos >= 0) {
+			return;
+		}
+		pos = -(pos + 1);
+		leaf = writable(page);
+		size++;
+
+		if (leaf.count < LEAF_CAPACITY) {
+			insertKey(leaf, pos, key);
+			afterChange();
+			return;
+		}
+
+		// Appending to the last leaf: start a new leaf with just this key, so
+		// keys inserted in sorted order fill their leaves completely.
+		// Otherwise move the upper half of the keys to a new leaf.
+		Node right = new Node(true);
+		int mid = pos == leaf.count && leaf.next == 0 ? leaf.count : leaf.count / 2;
+		System.arraycopy(leaf.keys, mid, right.keys, 0, leaf.count - mid);
+		right.count = leaf.count - mid;
+		leaf.count = mid;
+		if (pos < mid) {
+			insertKey(leaf, pos, key);
+		}
+		else {
+			insertKey(right, pos - mid, key);
+		}
+		right.next = leaf.next;
+		leaf.next = allocate(right);
+
+		// Hand the new page and its first key up the path
+		long separator = right.keys[0];
+		int child = leaf.next;
+		Node parent;
+		int i;
+
+		for (int level = height - 2; level >= 0; level--) {
+			parent = writable(path[level]);
+			i = index[level];
+
+			if (parent.count < INTERNAL_CAPACITY) {
+				insertChild(parent, i, separator, child);
+				afterChange();
+				return;
+			}
+
+			// Parent is full: split it around its middle key, which goes up
+			long[] keys = new long[INTERNAL_CAPACITY + 1];
+			int[] children = new int[INTERNAL_CAPACITY + 2];
+			System.arraycopy(parent.keys, 0, keys, 0, i);
+			keys[i] = separator;
+			System.arraycopy(parent.keys, i, keys, i + 1, parent.count - i);
+			System.arraycopy(parent.children, 0, children, 0, i + 1);
+			children[i + 1] = child;
+			System.arraycopy(parent.children, i + 1, children, i + 2, parent.count - i);
+
+			int half = keys.length / 2;
+			Node sibling = new Node(false);
+			sibling.count = keys.length - half - 1;
+			System.arraycopy(keys, half + 1, sibling.keys, 0, sibling.count);
+			System.arraycopy(children, half + 1, sibling.children, 0, sibling.count + 1);
+			parent.count = half;
+			System.arraycopy(keys, 0, parent.keys, 0, half);
+			System.arraycopy(children, 0, parent.children, 0, half + 1);
+
+			separator = keys[half];
+			child = allocate(sibling);
+		}
+
+		// Root split, the tree grows a level at the top
+		Node newRoot = new Node(false);
+		newRoot.count = 1;
+		newRoot.keys[0] = separator;
+		newRoot.children[0] = root;
+		newRoot.children[1] = child;
+		root = allocate(newRoot);
+		height++;
+		afterChange();
+	}
+
+	/**
+	* Delete a key from the tree. A node left less than half full takes a key
+	* from a sibling that can spare one, or else is merged with it, which
+	* takes a key out of the parent, which may then need the same fix. The
+	* last leaf may be less than half full after sorted inserts; it is fixed
+	* the same way.
+	*
+	* @param data The key to delete.
+	*/
+	public void delete(Long data) {
+		long key = data;
+		int[] path = new int[height];
+		int[] index = new int[height];
+		int page = descend(key, path, index);
+		Node node = read(page);
+		int pos = Arrays.binarySearch(node.keys, 0, node.count, key);
+
+		// Key is not in the tree
+		if (pos < 0) {
+			return;
+		}
+		node = writable(page);
+		System.arraycopy(node.keys, pos + 1, node.keys, pos, node.count - pos - 1);
+		node.count--;
+		size--;
+
+		for (int level = height - 2; level >= 0 && node.count < minKeys(node); level--) {
+			if (!rebalance(writable(path[level]), index[level], node, page)) {
+				break;
+			}
+			page = path[level];
+			node = writable(page);
+		}
+
+		// Root ran out of keys, its only child becomes the root
+		Node top = read(root);
+		if (!top.leaf && top.count == 0) {
+			free(root);
+			root = top.children[0];
+			height--;
+		}
+		afterChange();
+	}
+
+	/**
+	* Walk down from the root to the leaf that would hold a key.
+	*
+	* @param key The key.
+	* @param path Filled with the internal pages on the way down.
+	* @param index Filled with the child taken at each of those pages.
+	*
+	* @return the leaf page.
+	*/
+	private int descend(long key, int[] path, int[] index) {
+		int page = root;
+		Node node;
+
+		for (int level = 0; level < height - 1; level++) {
+			node = read(page);
+			path[level] = page;
+			index[level] = childIndex(node, key);
+			page = node.children[index[level]];
+		}
+		return page;
+	}
+
+	/**
+	* Get the child of an internal node whose subtree would hold a key. Child
+	* i holds the keys from keys[i - 1] up to but not including keys[i].
+	*/
+	private static int childIndex(Node node, long key) {
+		int i = Arrays.binarySearch(node.keys, 0, node.count, key);
+		return i >= 0 ? i + 1 : -(i + 1);
+	}
+
+	/**
+	* Get the smallest number of keys a node other than the root keeps.
+	*/
+	private static int minKeys(Node node) {
+		return node.leaf ? LEAF_CAPACITY / 2 : INTERNAL_CAPACITY / 2;
+	}
+
+	/**
+	* Insert a key into a node that is not full.
+	*/
+	private static void insertKey(Node node, int pos, long key) {
+		System.arraycopy(node.keys, pos, node.keys, pos + 1, node.count - pos);
+		node.keys[pos] = key;
+		node.count++;
+	}
+
+	/**
+	* Insert a key and the child to its right into an internal node that is
+	* not full.
+	*/
+	private static void insertChild(Node node, int pos, long key, int child) {
+		System.arraycopy(node.children, pos + 1, node.children, pos + 2, node.count - pos);
+		node.children[pos + 1] = child;
+		insertKey(node, pos, key);
+	}
+
+	/**
+	* Remove key pos and the child to its right from an internal node.
+	*/
+	private static void removeChild(Node node, int pos) {
+		System.arraycopy(node.keys, pos + 1, node.keys, pos, node.count - pos - 1);
+		System.arraycopy(node.children, pos + 2, node.children, pos + 1, node.count - pos - 1);
+		node.count--;
+	}
+
+	/**
+	* Fix a node with too few keys by borrowing a key from a sibling, or by
+	* merging it with one.
+	*
+	* @param parent The parent, already writable.
+	* @param i The index of the node in the parent.
+	* @param node The node, already writable.
+	* @param page The page of the node.
+	*
+	* @return true if the nodes were merged, so the parent lost a key.
+	*/
+	private boolean rebalance(Node parent, int i, Node node, int page) {
+		int min = minKeys(node);
+
+		if (i > 0 && read(parent.children[i - 1]).count > min) {
+			borrowFromLeft(parent, i, node, writable(parent.children[i - 1]));
+			return false;
+		}
+		if (i < parent.count && read(parent.children[i + 1]).count > min) {
+			borrowFromRight(parent, i, node, writable(parent.children[i + 1]));
+			return false;
+		}
+
+		if (i > 0) {
+			merge(parent, i - 1, writable(parent.children[i - 1]), node, page);
+		}
+		else {
+			int rightPage = parent.children[1];
+			merge(parent, 0, node, writable(rightPage), rightPage);
+		}
+		return true;
+	}
+
+	/**
+	* Move the last key of the left sibling into child i. For internal nodes
+	* the key rotates through the parent, and the sibling's last child moves
+	* along with it.
+	*/
+	private static void borrowFromLeft(Node parent, int i, Node node, Node left) {
+		System.arraycopy(node.keys, 0, node.keys, 1, node.count);
+		if (node.leaf) {
+			node.keys[0] = left.keys[left.count - 1];
+			parent.keys[i - 1] = node.keys[0];
+		}
+		else {
+			System.arraycopy(node.children, 0, node.children, 1, node.count + 1);
+			node.keys[0] = parent.keys[i - 1];
+			node.children[0] = left.children[left.count];
+			parent.keys[i - 1] = left.keys[left.count - 1];
+		}
+		node.count++;
+		left.count--;
+	}
+
+	/**
+	* Move the first key of the right sibling into child i.
+	*/
+	private static void borrowFromRight(Node parent, int i, Node node, Node right) {
+		if (node.leaf) {
+			node.keys[node.count] = right.keys[0];
+			parent.keys[i] = right.keys[1];
+		}
+		else {
+			node.keys[node.count] = parent.keys[i];
+			node.children[node.count + 1] = right.children[0];
+			parent.keys[i] = right.keys[0];
+			System.arraycopy(right.children, 1, right.children, 0, right.count);
+		}
+		System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+		node.count++;
+		right.count--;
+	}
+
+	/**
+	* Merge child k + 1 into child k and free its page. Internal nodes also
+	* take the key between them from the parent.
+	*/
+	private void merge(Node parent, int k, Node left, Node right, int rightPage) {
+		if (left.leaf) {
+			System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+			left.count += right.count;
+			left.next = right.next;
+		}
+		else {
+			left.keys[left.count] = parent.keys[k];
+			System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+			System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+			left.count += right.count + 1;
+		}
+		removeChild(parent, k);
+		free(rightPage);
+	}
+
+	/**
+	* Get a page as a node, from the dirty pages, the cache or the file. The
+	* node must not be changed; see writable.
+	*/
+	private Node read(int page) {
+		Node node = dirty.get(page);
+
+		if (node == null) {
+			node = cache.get(page);
+			if (node == null) {
+				node = decode(page);
+				cache.put(page, node);
+			}
+		}
+		return node;
+	}
+
+	/**
+	* Get a page as a node that can be changed. It moves to the dirty pages
+	* and stays on the heap until the next commit.
+	*/
+	private Node writable(int page) {
+		Node node = dirty.get(page);
+
+		if (node == null) {
+			node = cache.remove(page);
+			if (node == null) {
+				node = decode(page);
+			}
+			dirty.put(page, node);
+		}
+		return node;
+	}
+
+	/**
+	* Give a new node a page, reusing a free one if there is one.
+	*
+	* @return the page number.
+	*/
+	private int allocate(Node node) {
+		int page;
+
+		if (freeHead != 0) {
+			page = freeHead;
+			freeHead = read(page).next;
+			cache.remove(page);
+		}
+		else {
+			page = pageCount++;
+		}
+		dirty.put(page, node);
+		return page;
+	}
+
+	/**
+	* Add a page to the free list. A free page is written as an empty leaf
+	* whose next field is the next free page.
+	*/
+	private void free(int page) {
+		Node node = new Node(true);
+		node.next = freeHead;
+		freeHead = page;
+		cache.remove(page);
+		dirty.put(page, node);
+	}
+
+	/**
+	* Commit if enough pages are dirty.
+	*/
+	private void afterChange() {
+		if (dirty.size() >= MAX_DIRTY_PAGES) {
+			try {
+				commit();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	* Make all changes since the last commit durable, through the write-ahead
+	* log. Returns once they are on disk.
+	*/
+	public void commit() throws IOException {
+		if (dirty.isEmpty()) {
+			return;
+		}
+
+		// 1. Log the new contents of every changed page, then the trailer
+		ByteBuffer buf = ByteBuffer.allocate(PAGE_SIZE);
+		ByteBuffer header = ByteBuffer.allocate(4);
+		CRC32 crc = new CRC32();
+		long position = 0;
+
+		wal.truncate(0);
+		writeMeta(buf, 0);
+		position = writeRecord(0, header, buf, crc, position);
+		for (Map.Entry<Integer, Node> entry : dirty.entrySet()) {
+			encode(entry.getValue(), buf, 0);
+			position = writeRecord(entry.getKey(), header, buf, crc, position);
+		}
+
+		ByteBuffer trailer = ByteBuffer.allocate(WAL_TRAILER_SIZE);
+		trailer.putInt(WAL_MAGIC).putInt(dirty.size() + 1).putInt((int) crc.getValue());
+		trailer.flip();
+		writeFully(wal, trailer, position);
+		wal.force(false);
+
+		// 2. Copy the pages into the file
+		writeMeta(region(0), 0);
+		for (Map.Entry<Integer, Node> entry : dirty.entrySet()) {
+			encode(entry.getValue(), region(entry.getKey()), offset(entry.getKey()));
+		}
+		force();
+
+		// 3. The log is no longer needed
+		wal.truncate(0);
+		cache.putAll(dirty);
+		dirty.clear();
+	}
+
+	/**
+	* Append a page to the log.
+	*
+	* @return the position after the record.
+	*/
+	private long writeRecord(int page, ByteBuffer header, ByteBuffer buf, CRC32 crc,
+			long position) throws IOException {
+		header.clear();
+		header.putInt(0, page);
+		crc.update(header.array(), 0, 4);
+		crc.update(buf.array(), 0, PAGE_SIZE);
+		writeFully(wal, header, position);
+		buf.clear();
+		writeFully(wal, buf, position + 4);
+		return position + WAL_RECORD_SIZE;
+	}
+
+	/**
+	* Copy the pages of a complete log into the file, then empty the log. A
+	* log with a missing or bad trailer is from a commit that did not finish
+	* writing it, and is dropped.
+	*/
+	private void recover() throws IOException {
+		long length = wal.size();
+		long records = (length - WAL_TRAILER_SIZE) / WAL_RECORD_SIZE;
+
+		if (length >= WAL_TRAILER_SIZE && records * WAL_RECORD_SIZE + WAL_TRAILER_SIZE == length) {
+			ByteBuffer trailer = ByteBuffer.allocate(WAL_TRAILER_SIZE);
+			readFully(wal, trailer, length - WAL_TRAILER_SIZE);
+
+			if (trailer.getInt(0) == WAL_MAGIC && trailer.getInt(4) == records
+					&& trailer.getInt(8) == checksum(records)) {
+				ByteBuffer record = ByteBuffer.allocate(WAL_RECORD_SIZE);
+				for (long i = 0; i < records; i++) {
+					record.clear();
+					readFully(wal, record, i * WAL_RECORD_SIZE);
+					int page = record.getInt(0);
+					ByteBuffer target = region(page).duplicate();
+					target.position(offset(page));
+					record.position(4);
+					target.put(record);
+				}
+				force();
+			}
+		}
+		wal.truncate(0);
+		wal.force(false);
+	}
+
+	/**
+	* Compute the checksum of the first records of the log.
+	*/
+	private int checksum(long records) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(WAL_RECORD_SIZE);
+		CRC32 crc = new CRC32();
+
+		for (long i = 0; i < records; i++) {
+			record.clear();
+			readFully(wal, record, i * WAL_RECORD_SIZE);
+			crc.update(record.array(), 0, WAL_RECORD_SIZE);
+		}
+		return (int) crc.getValue();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position)
+			throws IOException {
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position)
+			throws IOException {
+		while (buf.hasRemaining()) {
+			int read = channel.read(buf, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			position += read;
+		}
+	}
+
+	/**
+	* Get the mapped region holding a page, mapping more of the file if
+	* needed. Mapping past the end of the file grows it.
+	*/
+	private MappedByteBuffer region(int page) throws IOException {
+		int index = page / REGION_PAGES;
+
+		while (regions.size() <= index) {
+			regions.add(channel.map(FileChannel.MapMode.READ_WRITE,
+				regions.size() * REGION_SIZE, REGION_SIZE));
+		}
+		return regions.get(index);
+	}
+
+	/**
+	* Get the offset of a page within its region.
+	*/
+	private static int offset(int page) {
+		return (page % REGION_PAGES) * PAGE_SIZE;
+	}
+
+	/**
+	* Write the mapped regions back to the file.
+	*/
+	private void force() {
+		for (MappedByteBuffer region : regions) {
+			region.force();
+		}
+	}
+
+	/**
+	* Read a page from the file into a new node.
+	*/
+	private Node decode(int page) {
+		ByteBuffer buf;
+		try {
+			buf = region(page);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		int base = offset(page);
+		Node node = new Node(buf.getInt(base) == LEAF);
+		node.count = buf.getInt(base + 4);
+
+		if (node.leaf) {
+			node.next = buf.getInt(base + 8);
+			for (int i = 0; i < node.count; i++) {
+				node.keys[i] = buf.getLong(base + LEAF_HEADER + 8 * i);
+			}
+		}
+		else {
+			for (int i = 0; i < node.count; i++) {
+				node.keys[i] = buf.getLong(base + INTERNAL_HEADER + 8 * i);
+			}
+			for (int i = 0; i <= node.count; i++) {
+				node.children[i] = buf.getInt(base + INTERNAL_CHILDREN + 4 * i);
+			}
+		}
+		return node;
+	}
+
+	/**
+	* Write a node into a page.
+	*/
+	private static void encode(Node node, ByteBuffer buf, int base) {
+		buf.putInt(base, node.leaf ? LEAF : INTERNAL);
+		buf.putInt(base + 4, node.count);
+
+		if (node.leaf) {
+			buf.putInt(base + 8, node.next);
+			for (int i = 0; i < node.count; i++) {
+				buf.putLong(base + LEAF_HEADER + 8 * i, node.keys[i]);
+			}
+		}
+		else {
+			for (int i = 0; i < node.count; i++) {
+				buf.putLong(base + INTERNAL_HEADER + 8 * i, node.keys[i]);
+			}
+			for (int i = 0; i <= node.count; i++) {
+				buf.putInt(base + INTERNAL_CHILDREN + 4 * i, node.children[i]);
+			}
+		}
+	}
+
+	/**
+	* Get an iterator over all keys in ascending order.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<Long> iterator() {
+		return range(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	* Get an iterator over the keys between lo and hi (both included), in
+	* ascending order. It walks down to the leaf holding lo once, then
+	* follows the next pointers from leaf to leaf. The leaves it reads do not
+	* go into the cache, so a long scan does not push the hot pages out. The
+	* tree must not be changed while iterating.
+	*
+	* @param lo The smallest key to return.
+	* @param hi The largest key to return.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<Long> range(long lo, long hi) {
+		return new RangeIterator(lo, hi);
+	}
+
+	/**
+	* Commit any changes and close the file. The mapping itself is released
+	* once it is garbage collected. The log is only deleted once the commit
+	* has gone through; if it fails, the log is left for the next open to
+	* replay.
+	*/
+	public void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			wal.close();
+			channel.close();
+		}
+		Files.deleteIfExists(walPath);
+	}
+
+	/**
+	* Building a tree, reopening it, and scanning a range.
+	*/
+	public static void main(String[] args) throws IOException {
+		Path path = Paths.get("bplustree.db");
+		Random random = new Random(42);
+		long start;
+
+		System.out.println("Inserting 1000000 random keys into a new B+tree file.");
+		DiskBPlusTree tree = new DiskBPlusTree(path);
+		for (int i = 0; i < 1000000; i++) {
+			tree.insert((long) random.nextInt(10000000));
+		}
+		System.out.println("Size: " + tree.getSize() + ", height: " + tree.getHeight());
+		tree.close();
+
+		start = System.nanoTime();
+		tree = new DiskBPlusTree(path);
+		System.out.println("Reopened in " + (System.nanoTime() - start) / 1000 + " us.");
+		System.out.println("Size: " + tree.getSize());
+
+		System.out.println("Deleting the keys below 5000000.");
+		Iterator<Long> it = tree.range(0, 4999999);
+		List<Long> doomed = new ArrayList<Long>();
+		while (it.hasNext()) {
+			doomed.add(it.next());
+		}
+		for (Long key : doomed) {
+			tree.delete(key);
+		}
+		System.out.println("Size: " + tree.getSize());
+
+		System.out.print("Keys from 5000000 to 5000100:");
+		it = tree.range(5000000, 5000100);
+		while (it.hasNext()) {
+			System.out.print(" " + it.next());
+		}
+		System.out.println();
+
+		tree.close();
+		Files.delete(path);
+	}
+
+	/**
+	* Ascending iterator over a range of keys, one leaf at a time.
+	*/
+	class RangeIterator implements Iterator<Long> {
+		private final long hi;
+		private Node leaf;
+		private int pos;
+
+		RangeIterator(long lo, long hi) {
+			this.hi = hi;
+
+			Node node = read(root);
+			while (!node.leaf) {
+				node = read(node.children[childIndex(node, lo)]);
+			}
+			int i = Arrays.binarySearch(node.keys, 0, node.count, lo);
+			leaf = node;
+			pos = i >= 0 ? i : -(i + 1);
+		}
+
+		public boolean hasNext() {
+
+			// Move on to the next leaf when this one is used up
+			while (leaf != null && pos == leaf.count) {
+				leaf = leaf.next == 0 ? null : peek(leaf.next);
+				pos = 0;
+			}
+			return leaf != null && leaf.keys[pos] <= hi;
+		}
+
+		public Long next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return leaf.keys[pos++];
+		}
+
+		/**
+		* Get a page as a node without adding it to the cache.
+		*/
+		private Node peek(int page) {
+			Node node = dirty.get(page);
+
+			if (node == null) {
+				node = cache.get(page);
+			}
+			return node != null ? node : decode(page);
+		}
+	}
+
+	/**
+	* A page decoded on the heap. Leaves use keys and next; internal nodes
+	* use keys and children.
+	*/
+	static class Node {
+		final boolean leaf;
+		final long[] keys;
+		final int[] children;
+		int count;
+		int next;
+
+		Node(boolean leaf) {
+			this.leaf = leaf;
+			this.keys = new long[leaf ? LEAF_CAPACITY : INTERNAL_CAPACITY];
+			this.children = leaf ? null : new int[INTERNAL_CAPACITY + 1];
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/**
+* Binary search tree whose operations are all loops instead of recursion, so
+* even a degenerate tree millions of nodes deep cannot overflow the stack.
+* Every node keeps a pointer to its parent, which lets delete relink nodes
+* and lets the traversals walk back up the tree without any stack at all:
+* they use O(1) extra memory. Each search calls compareTo once per node.
+*
+* Like RecursiveBST, the tree does no rebalancing; see AVLTree for that.
+*/
+public class IterativeBST<T extends Comparable<? super T>> implements BSTInterface<T> {
+	private Node<T> root;
+
+	/**
+	* Clear the binary search tree.
+	*/
+	public void clear() {
+		root = null;
+	}
+
+	/**
+	* Check if the tree is empty.
+	*
+	* @return true if empty, false otherwise.
+	*/
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	* Insert an item into the tree.
+	*
+	* @param data The item to insert.
+	*/
+	public void insert(T data) {
+		Node<T> parent = null;
+		Node<T> curr = root;
+		int cmp = 0;
+
+		// Walk down to the empty spot where the data belongs
+		while (curr != null) {
+			cmp = data.compareTo(curr.data);
+
+			// Data to insert is already in tree
+			if (cmp == 0) {
+				return;
+			}
+			parent = curr;
+			curr = cmp < 0 ? curr.left : curr.right;
+		}
+
+		// Hang the new node off the last node we visited
+		Node<T> node = new Node<T>(data, parent);
+		if (parent == null) {
+			root = node;
+		}
+		else if (cmp < 0) {
+			parent.left = node;
+		}
+		else {
+			parent.right = node;
+		}
+	}
+
+	/**
+	* Find the node holding the data.
+	*
+	* @param data The data to look for.
+	*
+	* @return the node, or null if not found.
+	*/
+	private Node<T> find(T data) {
+		Node<T> curr = root;
+		int cmp;
+
+		while (curr != null) {
+			cmp = data.compareTo(curr.data);
+			if (cmp == 0) {
+				return curr;
+			}
+			curr = cmp < 0 ? curr.left : curr.right;
+		}
+		return null;
+	}
+
+	/**
+	* Delete a node in the tree. A node with two children takes the data of
+	* the largest node in its left subtree, which is then unlinked instead.
+	*
+	* @param data Delete the node holding the specified data.
+	*/
+	public void delete(T data) {
+		Node<T> node = find(data);
+
+		// Nothing to delete
+		if (node == null) {
+			return;
+		}
+
+		// Node has two children, unlink its predecessor instead
+		if (node.left != null && node.right != null) {
+			Node<T> max = node.left;
+			while (max.right != null) {
+				max = max.right;
+			}
+			node.data = max.data;
+			node = max;
+		}
+
+		// Node now has at most one child, which takes its place
+		Node<T> child = node.left != null ? node.left : node.right;
+		if (child != null) {
+			child.parent = node.parent;
+		}
+
+		if (node.parent == null) {
+			root = child;
+		}
+		else if (node.parent.left == node) {
+			node.parent.left = child;
+		}
+		else {
+			node.parent.right = child;
+		}
+	}
+
+	/**
+	* Check if the tree contains a node holding the specified data.
+	*
+	* @param data The data to check for.
+	*
+	* @return true if a node in that tree contains the data, false otherwise.
+	*/
+	public boolean contains(T data) {
+		return find(data) != null;
+	}
+
+	/**
+	* Get the leftmost node of a subtree.
+	*/
+	private Node<T> leftmost(Node<T> curr) {
+		while (curr.left != null) {
+			curr = curr.left;
+		}
+		return curr;
+	}
+
+	/**
+	* Preorder traversal of the tree. In preorder, we visit (1) the current
+	* node, (2) then the left, (3) then the right.
+	*/
+	public void preOrderTraversal() {
+		Node<T> curr = root;
+
+		while (curr != null) {
+			System.out.println(curr.data);
+
+			// Go down, left first
+			if (curr.left != null) {
+				curr = curr.left;
+			}
+			else if (curr.right != null) {
+				curr = curr.right;
+			}
+
+			// Leaf: climb until we can go down a right subtree we have
+			// not visited yet
+			else {
+				while (curr.parent != null
+						&& (curr.parent.right == curr || curr.parent.right == null)) {
+					curr = curr.parent;
+				}
+				curr = curr.parent == null ? null : curr.parent.right;
+			}
+		}
+	}
+
+	/**
+	* Inorder traversal of the tree. In inorder, we visit the (1) left,
+	* then (2) current, then (3) the right.
+	*/
+	public void inOrderTraversal() {
+		Node<T> curr = root == null ? null : leftmost(root);
+
+		while (curr != null) {
+			System.out.println(curr.data);
+
+			// Next is the leftmost node of the right subtree
+			if (curr.right != null) {
+				curr = leftmost(curr.right);
+			}
+
+			// Or the first ancestor we reach from its left side
+			else {
+				while (curr.parent != null && curr.parent.right == curr) {
+					curr = curr.parent;
+				}
+				curr = curr.parent;
+			}
+		}
+	}
+
+	/**
+	* Postorder traversal of the tree. In postorder, we visit the (1) left,
+	* (2) right, and then (3) the current node.
+	*/
+	public void postOrderTraversal() {
+		Node<T> curr = root == null ? null : firstPostOrder(root);
+		Node<T> parent;
+
+		while (curr != null) {
+			System.out.println(curr.data);
+			parent = curr.parent;
+
+			// Coming up from a left child, the right subtree comes next
+			if (parent != null && parent.left == curr && parent.right != null) {
+				curr = firstPostOrder(parent.right);
+			}
+
+			// Otherwise both subtrees of the parent are done
+			else {
+				curr = parent;
+			}
+		}
+	}
+
+	/**
+	* Get the first node of a subtree in postorder: go down, left when
+	* possible, until reaching a leaf.
+	*/
+	private Node<T> firstPostOrder(Node<T> curr) {
+		while (curr.left != null || curr.right != null) {
+			curr = curr.left != null ? curr.left : curr.right;
+		}
+		return curr;
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Instantiating an iterative BST.");
+		IterativeBST<Integer> bst = new IterativeBST<Integer>();
+		bst.insert(4);
+		bst.insert(2);
+		bst.insert(6);
+		bst.insert(1);
+		bst.insert(3);
+		bst.insert(5);
+		bst.insert(7);
+		System.out.println("Preorder Traversal:");
+		bst.preOrderTraversal();
+		System.out.println("Inorder Traversal:");
+		bst.inOrderTraversal();
+		System.out.println("Postorder Traversal:");
+		bst.postOrderTraversal();
+
+		System.out.println("Inserting 1 to 5000 in sorted order.");
+		bst.clear();
+		for (int i = 1; i <= 5000; i++) {
+			bst.insert(i);
+		}
+		System.out.println("Contains 5000: " + bst.contains(5000));
+	}
+
+	/**
+	* The binary search tree node. Holds the left, right and parent node.
+	*/
+	static class Node<T> {
+		T data;
+		Node<T> left;
+		Node<T> right;
+		Node<T> parent;
+
+		Node(T data, Node<T> parent) {
+			this.data = data;
+			this.parent = parent;
+		}
+	}
+}
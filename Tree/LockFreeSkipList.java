@@ -0,0 +1,434 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+* Thread-safe sorted set built on a lock-free skip list. Every item is in a
+* sorted linked list (level 0), and about half of them are also in the list
+* above it, a quarter in the one above that, and so on, so a search can skip
+* over most of the items on its way down. Searches take O(log n) steps on
+* average without any rebalancing.
+*
+* No operation takes a lock. Each link is an AtomicMarkableReference, and a
+* node is deleted by first marking its own links (top level down to level 0;
+* the mark on level 0 is the moment it leaves the set) and then unlinking it
+* with a compare-and-set on its predecessor's link. Insert and delete retry
+* when such a compare-and-set fails, and threads working on different parts
+* of the list do not touch the same links, so they scale with the number of
+* cores. Inserts and deletes that meet a marked node help unlink it.
+*
+* contains never writes and never retries: it just steps over marked nodes,
+* so it finishes in a bounded number of steps no matter what other threads
+* do (it is wait-free). Iterators and range scans walk level 0 the same way.
+* They are weakly consistent: they never throw, and return each item that is
+* in the set for the whole iteration exactly once, in order, but may or may
+* not see items inserted or deleted while they run.
+*
+* Based on the lock-free skip list of Herlihy and Shavit, "The Art of
+* Multiprocessor Programming", chapter 14. Null items are not supported.
+*/
+public class LockFreeSkipList<T extends Comparable<? super T>> implements BSTInterface<T>, Iterable<T> {
+	private static final int MAX_LEVEL = 31;
+
+	// Holds no item, smaller than every item; null links end the lists
+	private final Node<T> head = new Node<T>(null, MAX_LEVEL);
+
+	/**
+	* Remove every item. Items inserted by other threads while this runs may
+	* or may not be kept.
+	*/
+	public void clear() {
+		for (int level = MAX_LEVEL; level >= 0; level--) {
+			head.next[level].set(null, false);
+		}
+	}
+
+	/**
+	* Check if the set is empty.
+	*
+	* @return true if empty, false otherwise.
+	*/
+	public boolean isEmpty() {
+		return !iterator().hasNext();
+	}
+
+	/**
+	* Count the items. This walks the whole set, so it is O(n), and only an
+	* estimate while other threads are changing it.
+	*
+	* @return the number of items.
+	*/
+	public int getSize() {
+		int size = 0;
+		for (Iterator<T> it = iterator(); it.hasNext(); it.next()) {
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	* Check if the set contains the specified item. Wait-free.
+	*
+	* @param data The item to check for.
+	*
+	* @return true if found, false otherwise.
+	*/
+	public boolean contains(T data) {
+		Node<T> curr = ceiling(data);
+		return curr != null && data.compareTo(curr.data) == 0;
+	}
+
+	/**
+	* Insert an item into the set. The node is linked into level 0 first,
+	* which is when it joins the set, then into the levels above from the
+	* bottom up.
+	*
+	* @param data The item to insert.
+	*/
+	public void insert(T data) {
+		if (data == null) {
+			throw new NullPointerException("Null items are not supported");
+		}
+
+		int topLevel = randomLevel();
+		Node<T>[] preds = newLevels();
+		Node<T>[] succs = newLevels();
+		Node<T> node;
+
+		while (true) {
+
+			// Data to insert is already in the set
+			if (find(data, preds, succs)) {
+				return;
+			}
+
+			node = new Node<T>(data, topLevel);
+			for (int level = 0; level <= topLevel; level++) {
+				node.next[level].set(succs[level], false);
+			}
+
+			// Link in at level 0, or start over if the spot changed
+			if (preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				break;
+			}
+		}
+
+		boolean[] marked = {false};
+		Node<T> succ;
+
+		for (int level = 1; level <= topLevel; level++) {
+			while (true) {
+
+				// The node is already being deleted, stop linking it
+				succ = node.next[level].get(marked);
+				if (marked[0]) {
+					return;
+				}
+
+				// Point the node at the current successor, then link it in
+				if (succ == succs[level]
+						|| node.next[level].compareAndSet(succ, succs[level], false, false)) {
+					if (preds[level].next[level].compareAndSet(succs[level], node, false, false)) {
+						break;
+					}
+				}
+
+				// Something changed at this level, look again
+				find(data, preds, succs);
+			}
+		}
+	}
+
+	/**
+	* Delete an item from the set. The thread that marks the node's level 0
+	* link is the one that deletes it.
+	*
+	* @param data The item to delete.
+	*/
+	public void delete(T data) {
+		Node<T>[] preds = newLevels();
+		Node<T>[] succs = newLevels();
+		boolean[] marked = {false};
+		Node<T> succ;
+
+		// Item is not in the set
+		if (!find(data, preds, succs)) {
+			return;
+		}
+		Node<T> node = succs[0];
+
+		// Mark the upper levels, so no more links are made to the node
+		for (int level = node.next.length - 1; level >= 1; level--) {
+			succ = node.next[level].get(marked);
+			while (!marked[0]) {
+				node.next[level].attemptMark(succ, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+
+		// Mark level 0, unless another thread deletes it first
+		succ = node.next[0].get(marked);
+		while (!marked[0]) {
+			if (node.next[0].compareAndSet(succ, succ, false, true)) {
+
+				// Unlink it from every level
+				find(data, preds, succs);
+				return;
+			}
+			succ = node.next[0].get(marked);
+		}
+	}
+
+	/**
+	* Find the nodes around an item on every level, unlinking any marked
+	* nodes on the way.
+	*
+	* @param data The item to look for.
+	* @param preds Filled with the last node before the item on each level.
+	* @param succs Filled with the first node not before the item on each
+	* level, null at the end of the list.
+	*
+	* @return true if succs[0] holds the item.
+	*/
+	private boolean find(T data, Node<T>[] preds, Node<T>[] succs) {
+		boolean[] marked = {false};
+		Node<T> pred;
+		Node<T> curr = null;
+		Node<T> succ;
+
+		retry:
+		while (true) {
+			pred = head;
+			for (int level = MAX_LEVEL; level >= 0; level--) {
+				curr = pred.next[level].getReference();
+				while (curr != null) {
+					succ = curr.next[level].get(marked);
+
+					// curr is deleted: unlink it, or start over if pred changed
+					while (marked[0]) {
+						if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+							continue retry;
+						}
+						curr = succ;
+						if (curr == null) {
+							break;
+						}
+						succ = curr.next[level].get(marked);
+					}
+
+					if (curr == null || curr.data.compareTo(data) >= 0) {
+						break;
+					}
+					pred = curr;
+					curr = succ;
+				}
+				preds[level] = pred;
+				succs[level] = curr;
+			}
+			return curr != null && curr.data.compareTo(data) == 0;
+		}
+	}
+
+	/**
+	* Find the first node on level 0 that holds an item not smaller than the
+	* given one and is not deleted. Never writes, so it is wait-free.
+	*
+	* @param data The item to compare with.
+	*
+	* @return the node, or null if there is none.
+	*/
+	private Node<T> ceiling(T data) {
+		boolean[] marked = {false};
+		Node<T> pred = head;
+		Node<T> curr = null;
+		Node<T> succ;
+
+		for (int level = MAX_LEVEL; level >= 0; level--) {
+			curr = pred.next[level].getReference();
+			while (curr != null) {
+				succ = curr.next[level].get(marked);
+
+				// Step over deleted nodes
+				while (marked[0]) {
+					curr = succ;
+					if (curr == null) {
+						break;
+					}
+					succ = curr.next[level].get(marked);
+				}
+
+				if (curr == null || curr.data.compareTo(data) >= 0) {
+					break;
+				}
+				pred = curr;
+				curr = succ;
+			}
+		}
+		return curr;
+	}
+
+	/**
+	* Allocate an array with one node per level, for find to fill in.
+	*/
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> Node<T>[] newLevels() {
+		return (Node<T>[]) new Node[MAX_LEVEL + 1];
+	}
+
+	/**
+	* Pick the top level of a new node: level k with probability 1 / 2^(k+1).
+	*/
+	private static int randomLevel() {
+		return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | 1 << MAX_LEVEL);
+	}
+
+	/**
+	* Get a weakly consistent iterator over the items in ascending order.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> iterator() {
+		return new RangeIterator(head.next[0].getReference(), null);
+	}
+
+	/**
+	* Get a weakly consistent iterator over the items between lo and hi (both
+	* included), in ascending order. Finding lo takes one search down the
+	* levels.
+	*
+	* @param lo The smallest item to return.
+	* @param hi The largest item to return.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> range(T lo, T hi) {
+		return new RangeIterator(ceiling(lo), hi);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("Instantiating a lock-free skip list.");
+		final LockFreeSkipList<Integer> list = new LockFreeSkipList<Integer>();
+		for (int i = 1; i <= 10; i++) {
+			list.insert(i);
+		}
+		list.delete(5);
+		System.out.print("Items:");
+		for (Integer item : list) {
+			System.out.print(" " + item);
+		}
+		System.out.println();
+
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		final int ops = 200000;
+		final AtomicInteger scanned = new AtomicInteger();
+		Thread[] writers = new Thread[threads];
+
+		System.out.println(threads + " threads inserting and deleting while one scans.");
+		list.clear();
+		for (int i = 0; i < 100000; i += 2) {
+			list.insert(i);
+		}
+		for (int t = 0; t < threads; t++) {
+			writers[t] = new Thread(new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < ops; i++) {
+						int key = random.nextInt(100000);
+						if (random.nextBoolean()) {
+							list.insert(key);
+						}
+						else {
+							list.delete(key);
+						}
+					}
+				}
+			});
+		}
+		Thread scanner = new Thread(new Runnable() {
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					for (Iterator<Integer> it = list.range(25000, 74999); it.hasNext(); it.next()) {
+						scanned.incrementAndGet();
+					}
+				}
+			}
+		});
+
+		long start = System.nanoTime();
+		for (Thread writer : writers) {
+			writer.start();
+		}
+		scanner.start();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		scanner.join();
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println("Ops per second: " + (long) threads * ops * 1000000000L / elapsed);
+		System.out.println("Items seen by the scans: " + scanned.get());
+		System.out.println("Size: " + list.getSize());
+	}
+
+	/**
+	* Weakly consistent iterator along level 0. It always holds the next node
+	* to return, found before the previous item is handed out, and skips
+	* nodes that are deleted by then.
+	*/
+	class RangeIterator implements Iterator<T> {
+		private final T hi;
+		private Node<T> next;
+
+		RangeIterator(Node<T> first, T hi) {
+			this.hi = hi;
+			this.next = first;
+			skipDeleted();
+		}
+
+		/**
+		* Move next forward to a node that is not deleted and not past hi.
+		*/
+		private void skipDeleted() {
+			while (next != null && next.next[0].isMarked()) {
+				next = next.next[0].getReference();
+			}
+			if (next != null && hi != null && next.data.compareTo(hi) > 0) {
+				next = null;
+			}
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public T next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+
+			T data = next.data;
+			next = next.next[0].getReference();
+			skipDeleted();
+			return data;
+		}
+	}
+
+	/**
+	* The skip list node. Holds one link per level it is on.
+	*/
+	static class Node<T> {
+		final T data;
+		final AtomicMarkableReference<Node<T>>[] next;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Node(T data, int topLevel) {
+			this.data = data;
+			this.next = (AtomicMarkableReference<Node<T>>[]) new AtomicMarkableReference[topLevel + 1];
+			for (int level = 0; level <= topLevel; level++) {
+				this.next[level] = new AtomicMarkableReference<Node<T>>(null, false);
+			}
+		}
+	}
+}
@@ -1,4 +1,21 @@
-public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterface<T> {
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterface<T>, Iterable<T> {
+
+	// Subtrees smaller than this are built or visited by a single thread
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+
 	private Node<T> root;
 
 	/**
@@ -17,6 +34,23 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 		return root == null;
 	}
 
+	/**
+	* Get the number of items in the tree. O(1), since every node keeps the
+	* size of its subtree.
+	*
+	* @return the number of items.
+	*/
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	* Get the number of items in a subtree, 0 for an empty one.
+	*/
+	private int size(Node<T> curr) {
+		return curr == null ? 0 : curr.size;
+	}
+
 	/**
 	* Insert an item into the tree.
 	*
@@ -62,10 +96,121 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 			curr.right = insert(curr.right, data);
 		}
 
+		curr.size = 1 + size(curr.left) + size(curr.right);
+
 		// Compiler needs a return statement outside of if statements
 		return curr;
 	}
 
+	/**
+	* Replace the contents of the tree with the given items, which must be
+	* in strictly ascending order. The middle item becomes the root and each
+	* half is built the same way, so the tree is perfectly balanced: its
+	* height is ceil(log2(n + 1)). O(n), with no comparisons other than the
+	* check of the order, whereas inserting sorted items one at a time would
+	* build a linked list in O(n^2).
+	*
+	* @param items The items in ascending order.
+	*/
+	public void buildFromSorted(T[] items) {
+		buildFromSorted(items, false);
+	}
+
+	/**
+	* Replace the contents of the tree with the given items, which must be
+	* in strictly ascending order, optionally building the two halves of
+	* each large subtree in parallel on the common fork-join pool.
+	*
+	* @param items The items in ascending order.
+	* @param parallel Whether to build in parallel.
+	*/
+	public void buildFromSorted(T[] items, boolean parallel) {
+		for (int i = 1; i < items.length; i++) {
+			if (items[i - 1].compareTo(items[i]) >= 0) {
+				throw new IllegalArgumentException("Items are not in strictly ascending order at index " + i);
+			}
+		}
+
+		if (parallel && items.length > PARALLEL_THRESHOLD) {
+			root = ForkJoinPool.commonPool().invoke(new BuildTask(items, 0, items.length));
+		}
+		else {
+			root = build(items, 0, items.length);
+		}
+	}
+
+	/**
+	* Helper function for buildFromSorted.
+	*
+	* @param items The items in ascending order.
+	* @param from The index of the first item of the subtree.
+	* @param to The index after the last item of the subtree.
+	*
+	* @return the root of the subtree.
+	*/
+	private Node<T> build(T[] items, int from, int to) {
+		if (from == to) {
+			return null;
+		}
+
+		int mid = (from + to) >>> 1;
+		Node<T> node = new Node<T>(items[mid]);
+		node.left = build(items, from, mid);
+		node.right = build(items, mid + 1, to);
+		node.size = to - from;
+		return node;
+	}
+
+	/**
+	* Replace the contents of the tree with the next n items of an iterator,
+	* which must come in strictly ascending order. The tree is built in
+	* order as the items arrive, left subtree first, so the items do not need
+	* to be in memory all at once, and it comes out perfectly balanced like
+	* buildFromSorted(T[]). O(n).
+	*
+	* @param items The items in ascending order.
+	* @param n The number of items to take from the iterator.
+	*/
+	public void buildFromSorted(Iterator<T> items, int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Illegal item count: " + n);
+		}
+
+		root = build(items, n, new Object[1]);
+	}
+
+	/**
+	* Helper function for buildFromSorted.
+	*
+	* @param items The items in ascending order.
+	* @param n The number of items in the subtree.
+	* @param last Holds the last item taken so far (null before the first),
+	* to check the order.
+	*
+	* @return the root of the subtree.
+	*/
+	@SuppressWarnings("unchecked")
+	private Node<T> build(Iterator<T> items, int n, Object[] last) {
+		if (n == 0) {
+			return null;
+		}
+
+		// The first half of the items go to the left subtree
+		Node<T> left = build(items, n / 2, last);
+
+		T data = items.next();
+		if (last[0] != null && ((T) last[0]).compareTo(data) >= 0) {
+			throw new IllegalArgumentException("Items are not in strictly ascending order: " + data);
+		}
+		last[0] = data;
+
+		Node<T> node = new Node<T>(data);
+		node.left = left;
+		node.right = build(items, n - n / 2 - 1, last);
+		node.size = n;
+		return node;
+	}
+
 	/**
 	* Delete a node in the tree.
 	*
@@ -132,6 +277,7 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 			}
 		}
 
+		curr.size = 1 + size(curr.left) + size(curr.right);
 		return curr;
 	}
 
@@ -221,17 +367,18 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 		System.out.println(curr.data);
 
 		// Visit left subtree
-		inOrderTraversal(curr.left);
+		preOrderTraversal(curr.left);
 
 		// Visit the right subtree
-		inOrderTraversal(curr.right);
+		preOrderTraversal(curr.right);
 
 	}
 
-	/* Inorder traversal of the tree. In inorder, we visit the (1) left,
+	/**
+	* Inorder traversal of the tree. In inorder, we visit the (1) left,
 	* then (2) current, then (3) the right.
 	*/
-	private void inOrderTraversal() {
+	public void inOrderTraversal() {
 		inOrderTraversal(root);
 	}
 
@@ -274,16 +421,177 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 		}
 
 		// Visit left subtree
-		inOrderTraversal(curr.left);
+		postOrderTraversal(curr.left);
 
 		// Visit the right subtree
-		inOrderTraversal(curr.right);
+		postOrderTraversal(curr.right);
 
 		// Print the current node's data
 		System.out.println(curr.data);
 
 	}
 
+	/**
+	* Count the items that match a predicate, testing subtrees in parallel
+	* on the common fork-join pool. The predicate may be called from several
+	* threads at once. The tree must not be changed while counting.
+	*
+	* @param predicate The test for each item.
+	*
+	* @return the number of matching items.
+	*/
+	public long count(Predicate<? super T> predicate) {
+		return root == null ? 0 : ForkJoinPool.commonPool().invoke(new CountTask(root, predicate));
+	}
+
+	/**
+	* Helper function for count, on a single thread.
+	*/
+	private long count(Node<T> curr, Predicate<? super T> predicate) {
+		if (curr == null) {
+			return 0;
+		}
+		return count(curr.left, predicate) + (predicate.test(curr.data) ? 1 : 0)
+			+ count(curr.right, predicate);
+	}
+
+	/**
+	* Combine all items into one result, working on subtrees in parallel on
+	* the common fork-join pool, like Stream.reduce. Each subtree below the
+	* threshold is folded in sorted order with the accumulator, starting from
+	* identity, and the results of neighbouring subtrees are joined with the
+	* combiner, so an accumulator and combiner that are associative give the
+	* same result as a sequential fold in sorted order.
+	*
+	* @param identity The result for an empty subtree; combining it with any
+	* result must give that result.
+	* @param accumulator Adds an item to a partial result.
+	* @param combiner Joins the results of two neighbouring ranges of items,
+	* left one first.
+	*
+	* @return the result.
+	*/
+	public <R> R reduce(R identity, BiFunction<R, ? super T, R> accumulator,
+			BinaryOperator<R> combiner) {
+		if (root == null) {
+			return identity;
+		}
+		return ForkJoinPool.commonPool().invoke(
+			new ReduceTask<R>(root, identity, accumulator, combiner));
+	}
+
+	/**
+	* Helper function for reduce: fold a subtree in sorted order on a single
+	* thread.
+	*
+	* @param curr The root of the subtree.
+	* @param result The result so far.
+	*
+	* @return the result with the items of the subtree added.
+	*/
+	private <R> R reduce(Node<T> curr, R result, BiFunction<R, ? super T, R> accumulator) {
+		if (curr == null) {
+			return result;
+		}
+		result = reduce(curr.left, result, accumulator);
+		result = accumulator.apply(result, curr.data);
+		return reduce(curr.right, result, accumulator);
+	}
+
+	/**
+	* Call an action for every item, on subtrees in parallel on the common
+	* fork-join pool. The items are visited in no particular order and the
+	* action may be called from several threads at once.
+	*
+	* @param action The action to call.
+	*/
+	public void forEachParallel(Consumer<? super T> action) {
+		if (root != null) {
+			ForkJoinPool.commonPool().invoke(new ForEachTask(root, action));
+		}
+	}
+
+	/**
+	* Helper function for forEachParallel, on a single thread.
+	*/
+	private void forEach(Node<T> curr, Consumer<? super T> action) {
+		if (curr == null) {
+			return;
+		}
+		forEach(curr.left, action);
+		action.accept(curr.data);
+		forEach(curr.right, action);
+	}
+
+	/**
+	* Get an iterator over the items in sorted order. Same as
+	* inOrderIterator.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> iterator() {
+		return inOrderIterator();
+	}
+
+	/**
+	* Get an iterator over the items in preorder. The iterator is lazy: it
+	* only keeps a stack of nodes that are still to be visited, which is never
+	* more than the height of the tree. The tree must not be changed while
+	* iterating.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> preOrderIterator() {
+		return new PreOrderIterator();
+	}
+
+	/**
+	* Get an iterator over the items in sorted (inorder) order, using memory
+	* proportional to the height of the tree.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> inOrderIterator() {
+		return new InOrderIterator(null, null, false);
+	}
+
+	/**
+	* Get an iterator over the items in postorder, using memory proportional
+	* to the height of the tree.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> postOrderIterator() {
+		return new PostOrderIterator();
+	}
+
+	/**
+	* Get an iterator over the items between lo and hi (both included), in
+	* ascending order. Finding lo takes one walk down the tree, and items
+	* outside the range are never visited.
+	*
+	* @param lo The smallest item to return.
+	* @param hi The largest item to return.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> range(T lo, T hi) {
+		return new InOrderIterator(lo, hi, false);
+	}
+
+	/**
+	* Get an iterator over the items between lo and hi (both included), in
+	* descending order, starting from hi.
+	*
+	* @param lo The smallest item to return.
+	* @param hi The largest item to return.
+	*
+	* @return the iterator.
+	*/
+	public Iterator<T> descendingRange(T lo, T hi) {
+		return new InOrderIterator(lo, hi, true);
+	}
+
 
 	public static void main(String[] args) {
 		System.out.println("Instantiating a BST.");
@@ -295,20 +603,349 @@ public class RecursiveBST<T extends Comparable<? super T>> implements BSTInterfa
 		bst.insert(new Integer(3));
 		bst.insert(new Integer(5));
 		bst.insert(new Integer(7));
+		System.out.println("Preorder Traversal:");
+		bst.preOrderTraversal();
 		System.out.println("Inorder Traversal:");
 		bst.inOrderTraversal();
+		System.out.println("Postorder Traversal:");
+		bst.postOrderTraversal();
+
+		System.out.print("Items from 2 to 5:");
+		Iterator<Integer> range = bst.range(2, 5);
+		while (range.hasNext()) {
+			System.out.print(" " + range.next());
+		}
+		System.out.println();
+
+		System.out.print("Items from 5 down to 2:");
+		for (Iterator<Integer> it = bst.descendingRange(2, 5); it.hasNext(); ) {
+			System.out.print(" " + it.next());
+		}
+		System.out.println();
+
+		System.out.println("Building a tree from 1 to 1000000 in sorted order.");
+		Integer[] sorted = new Integer[1000000];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = i + 1;
+		}
+		bst.buildFromSorted(sorted);
+		System.out.println("Contains 1000000: " + bst.contains(1000000));
+		bst.buildFromSorted(sorted, true);
+		System.out.println("Built in parallel, contains 1000000: " + bst.contains(1000000));
+
+		System.out.println("Size: " + bst.getSize());
+		System.out.println("Multiples of 7: " + bst.count(x -> x % 7 == 0));
+		System.out.println("Sum: " + bst.reduce(0L, (sum, x) -> sum + x, Long::sum));
+		final LongAdder visited = new LongAdder();
+		bst.forEachParallel(x -> visited.increment());
+		System.out.println("Visited in parallel: " + visited.sum());
+	}
+
+	/**
+	* Builds a subtree from a range of sorted items, forking the two halves
+	* as separate tasks until they get small.
+	*/
+	class BuildTask extends RecursiveTask<Node<T>> {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] items;
+		private final int from;
+		private final int to;
+
+		BuildTask(T[] items, int from, int to) {
+			this.items = items;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected Node<T> compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				return build(items, from, to);
+			}
+
+			int mid = (from + to) >>> 1;
+			BuildTask left = new BuildTask(items, from, mid);
+			left.fork();
+			Node<T> node = new Node<T>(items[mid]);
+			node.right = new BuildTask(items, mid + 1, to).compute();
+			node.left = left.join();
+			node.size = to - from;
+			return node;
+		}
+	}
+
+	/**
+	* Counts the matching items of a subtree, forking the left subtree as a
+	* separate task while the subtree is large. The parallel tasks below also
+	* split this way.
+	*/
+	class CountTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final Node<T> node;
+		private final Predicate<? super T> predicate;
+
+		CountTask(Node<T> node, Predicate<? super T> predicate) {
+			this.node = node;
+			this.predicate = predicate;
+		}
+
+		protected Long compute() {
+			if (node.size <= PARALLEL_THRESHOLD) {
+				return count(node, predicate);
+			}
+
+			CountTask left = node.left == null ? null : new CountTask(node.left, predicate);
+			if (left != null) {
+				left.fork();
+			}
+			long count = (predicate.test(node.data) ? 1 : 0)
+				+ (node.right == null ? 0 : new CountTask(node.right, predicate).compute());
+			return left == null ? count : count + left.join();
+		}
+	}
+
+	/**
+	* Reduces a subtree, keeping the items in sorted order: left subtree,
+	* then the node, then the right subtree.
+	*/
+	class ReduceTask<R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+
+		private final Node<T> node;
+		private final R identity;
+		private final BiFunction<R, ? super T, R> accumulator;
+		private final BinaryOperator<R> combiner;
+
+		ReduceTask(Node<T> node, R identity, BiFunction<R, ? super T, R> accumulator,
+				BinaryOperator<R> combiner) {
+			this.node = node;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+		}
+
+		protected R compute() {
+			if (node.size <= PARALLEL_THRESHOLD) {
+				return reduce(node, identity, accumulator);
+			}
+
+			ReduceTask<R> left = node.left == null ? null
+				: new ReduceTask<R>(node.left, identity, accumulator, combiner);
+			if (left != null) {
+				left.fork();
+			}
+			R right = node.right == null ? identity
+				: new ReduceTask<R>(node.right, identity, accumulator, combiner).compute();
+			R result = accumulator.apply(left == null ? identity : left.join(), node.data);
+			return combiner.apply(result, right);
+		}
+	}
+
+	/**
+	* Calls an action for every item of a subtree.
+	*/
+	class ForEachTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Node<T> node;
+		private final Consumer<? super T> action;
+
+		ForEachTask(Node<T> node, Consumer<? super T> action) {
+			this.node = node;
+			this.action = action;
+		}
+
+		protected void compute() {
+			if (node.size <= PARALLEL_THRESHOLD) {
+				forEach(node, action);
+				return;
+			}
+
+			ForEachTask left = node.left == null ? null : new ForEachTask(node.left, action);
+			if (left != null) {
+				left.fork();
+			}
+			action.accept(node.data);
+			if (node.right != null) {
+				new ForEachTask(node.right, action).compute();
+			}
+			if (left != null) {
+				left.join();
+			}
+		}
+	}
+
+	/**
+	* Lazy preorder iterator. The stack holds the roots of the subtrees that
+	* are still to be visited, right ones below left ones.
+	*/
+	class PreOrderIterator implements Iterator<T> {
+		private final Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+
+		PreOrderIterator() {
+			if (root != null) {
+				stack.push(root);
+			}
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public T next() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+
+			// Visit the node, then its left subtree, then its right one
+			Node<T> curr = stack.pop();
+			if (curr.right != null) {
+				stack.push(curr.right);
+			}
+			if (curr.left != null) {
+				stack.push(curr.left);
+			}
+			return curr.data;
+		}
+	}
+
+	/**
+	* Lazy inorder iterator over an optional range, in either direction. The
+	* stack holds the nodes on the path from the root whose items are still
+	* to be returned, the next one on top.
+	*/
+	class InOrderIterator implements Iterator<T> {
+		private final Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+		private final T lo;
+		private final T hi;
+		private final boolean descending;
+
+		/**
+		* Constructor method for the iterator.
+		*
+		* @param lo The smallest item to return, or null for no bound.
+		* @param hi The largest item to return, or null for no bound.
+		* @param descending Whether to go from largest to smallest.
+		*/
+		InOrderIterator(T lo, T hi, boolean descending) {
+			this.lo = lo;
+			this.hi = hi;
+			this.descending = descending;
+
+			// Walk down to the first item, keeping the nodes still to return
+			Node<T> curr = root;
+			while (curr != null) {
+				if (descending) {
+					if (hi != null && curr.data.compareTo(hi) > 0) {
+						curr = curr.left;
+					}
+					else {
+						stack.push(curr);
+						curr = curr.right;
+					}
+				}
+				else {
+					if (lo != null && curr.data.compareTo(lo) < 0) {
+						curr = curr.right;
+					}
+					else {
+						stack.push(curr);
+						curr = curr.left;
+					}
+				}
+			}
+			dropPastEnd();
+		}
+
+		/**
+		* Stop once the next item is past the far end of the range.
+		*/
+		private void dropPastEnd() {
+			if (stack.isEmpty()) {
+				return;
+			}
+
+			T next = stack.peek().data;
+			if (descending ? lo != null && next.compareTo(lo) < 0
+					: hi != null && next.compareTo(hi) > 0) {
+				stack.clear();
+			}
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public T next() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+
+			// The next items are in the subtree on the far side of this node
+			Node<T> curr = stack.pop();
+			Node<T> child = descending ? curr.left : curr.right;
+			while (child != null) {
+				stack.push(child);
+				child = descending ? child.right : child.left;
+			}
+			dropPastEnd();
+			return curr.data;
+		}
+	}
+
+	/**
+	* Lazy postorder iterator. The stack holds the path from the root to the
+	* next node; a node is returned once both of its subtrees are done.
+	*/
+	class PostOrderIterator implements Iterator<T> {
+		private final Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+
+		PostOrderIterator() {
+			pushFirst(root);
+		}
+
+		/**
+		* Push the path down to the first node of a subtree in postorder,
+		* going left when possible, until reaching a leaf.
+		*/
+		private void pushFirst(Node<T> curr) {
+			while (curr != null) {
+				stack.push(curr);
+				curr = curr.left != null ? curr.left : curr.right;
+			}
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public T next() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+
+			// Coming up from a left child, the right subtree comes next
+			Node<T> curr = stack.pop();
+			if (!stack.isEmpty() && stack.peek().left == curr) {
+				pushFirst(stack.peek().right);
+			}
+			return curr.data;
+		}
 	}
 
 	/**
-	* The binary search tree node. Holds the left and right node, but not the
-	* parent.
+	* The binary search tree node. Holds the left and right node and the
+	* number of nodes in its subtree, but not the parent.
 	*/
 	class Node<T> {
 		public T data;
 		public Node<T> left;
 		public Node<T> right;
+		public int size;
 		public Node(T data) {
 			this.data = data;
+			this.size = 1;
 		}
 	}
 }